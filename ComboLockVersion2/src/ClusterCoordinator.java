@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The coordinator of a cluster of worker processes, each running one island of the island model (see ClusterWorker).
+ * Migrants sent by a worker are routed to the next worker that joined (ring) or to a random one, skipping workers
+ * that have been lost, and the best solution reported by any worker is tracked.  The coordinator never scores
+ * solutions, so it does not need the dictionary.  It stops once every worker that joined has left.
+ */
+public class ClusterCoordinator implements ClusterLink.Handler {
+	private final List<ClusterLink> workers = new CopyOnWriteArrayList<>(); // The live workers, in the order they joined
+	private final Map<ClusterLink, Integer> islands = new ConcurrentHashMap<>(); // The island of each live worker
+	private final IslandModel.Topology topology;
+	private Solution best; // The best solution reported by any worker
+	private double bestScore = Double.NEGATIVE_INFINITY; // The score reported for best
+	private boolean joined; // Has any worker joined
+	
+	/**
+	 * @param topology how the worker that receives migrants is chosen
+	 */
+	ClusterCoordinator(IslandModel.Topology topology) {
+		this.topology = topology;
+	}
+	
+	/**
+	 * Run a coordinator
+	 * @param args the port to listen on, which defaults to Optimizer.clusterPort
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : Optimizer.clusterPort;
+		ClusterCoordinator coordinator = new ClusterCoordinator(Optimizer.topology);
+		try (ServerSocket server = new ServerSocket(port)) {
+			System.out.println("Coordinator listening on port " + server.getLocalPort());
+			Thread acceptor = new Thread(() -> coordinator.accept(server), "Acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+			coordinator.awaitWorkers();
+		}
+		System.out.print("Best solution, score: ");
+		System.out.println(coordinator.getBestScore());
+		if (coordinator.getBest() != null) System.out.println(layout(coordinator.getBest()));
+	}
+	
+	/**
+	 * Accept connections from workers until the server socket is closed
+	 * @param server the server socket
+	 */
+	private void accept(ServerSocket server) {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				new ClusterLink(socket, this);
+			} catch (IOException e) {
+				if (!server.isClosed()) System.err.println("Could not accept a worker: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Wait until at least one worker has joined and every worker has left
+	 */
+	synchronized void awaitWorkers() throws InterruptedException {
+		while (!joined || !workers.isEmpty()) {
+			wait();
+		}
+	}
+	
+	@Override
+	public void received(ClusterLink link, ClusterMessage message) {
+		switch (message.type) {
+		case ClusterMessage.HELLO:
+			islands.put(link, message.island);
+			workers.add(link);
+			synchronized (this) {
+				joined = true;
+			}
+			System.out.println("Island " + message.island + " joined from " + link);
+			break;
+		case ClusterMessage.MIGRANTS:
+			report(message);
+			ClusterLink target = route(link);
+			if (target != null && !target.send(message)) {
+				System.err.println("Dropped migrants from island " + message.island + " for slow island " + islands.get(target));
+			}
+			break;
+		case ClusterMessage.BEST:
+			report(message);
+			break;
+		}
+	}
+	
+	@Override
+	public void closed(ClusterLink link) {
+		Integer island = islands.remove(link);
+		if (workers.remove(link)) {
+			System.out.println("Island " + island + " left");
+		}
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Choose the worker that receives the migrants from a worker
+	 * @param from the worker that sent the migrants
+	 * @return the worker, or null if there is no other live worker
+	 */
+	private ClusterLink route(ClusterLink from) {
+		ClusterLink[] live = workers.toArray(new ClusterLink[0]);
+		int ndx = -1;
+		for (int i = 0; i < live.length; i++) {
+			if (live[i] == from) ndx = i;
+		}
+		if (ndx < 0 || live.length < 2) return null;
+		if (topology == IslandModel.Topology.RING) {
+			return live[(ndx + 1) % live.length];
+		}
+		int target = ThreadLocalRandom.current().nextInt(live.length - 1);
+		return live[target < ndx ? target : target + 1];
+	}
+	
+	/**
+	 * Replace the best solution if a message has a better one
+	 * @param message the message
+	 */
+	private synchronized void report(ClusterMessage message) {
+		for (int i = 0; i < message.solutions.length; i++) {
+			if (message.scores[i] > bestScore) {
+				best = message.solutions[i];
+				bestScore = message.scores[i];
+				System.out.println("GLOBAL BEST Island " + message.island + ": " + bestScore + " " + layout(best));
+			}
+		}
+	}
+	
+	/**
+	 * @return the best solution reported by any worker, which has not been scored, or null
+	 */
+	synchronized Solution getBest() {
+		return best;
+	}
+	
+	/**
+	 * @return the score reported for the best solution
+	 */
+	synchronized double getBestScore() {
+		return bestScore;
+	}
+	
+	/**
+	 * @return the wheels of a solution, in the form used by Solution.toString
+	 */
+	private static String layout(Solution solution) {
+		StringBuffer sb = new StringBuffer();
+		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+			sb.append("/");
+			sb.append(solution.getWheel(w));
+			sb.append("/");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,120 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * One end of a connection between the coordinator and a worker of a cluster.
+ * Messages are read and written on threads of their own, and messages waiting to be written are kept in a
+ * bounded queue, so a slow or lost peer never holds up the optimization: when the queue is full messages are
+ * dropped, and when the connection fails it is closed.
+ */
+public class ClusterLink {
+	static int QUEUE_SIZE = 16; // The number of messages that can wait to be written
+	
+	/**
+	 * Receives the messages that arrive on a link
+	 */
+	interface Handler {
+		/**
+		 * Called on the link's reading thread for each message
+		 * @param link the link
+		 * @param message the message
+		 */
+		void received(ClusterLink link, ClusterMessage message);
+		
+		/**
+		 * Called once when the link has been closed
+		 * @param link the link
+		 */
+		void closed(ClusterLink link);
+	}
+	
+	private final Socket socket;
+	private final Handler handler;
+	private final BlockingQueue<ClusterMessage> outgoing = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private final Thread reader;
+	private final Thread writer;
+	private volatile boolean open = true;
+	
+	/**
+	 * Start reading and writing messages on a connected socket
+	 * @param socket the socket
+	 * @param handler receives the messages that are read
+	 * @throws IOException if the socket's streams cannot be opened
+	 */
+	ClusterLink(Socket socket, Handler handler) throws IOException {
+		this.socket = socket;
+		this.handler = handler;
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		reader = new Thread(() -> {
+			try {
+				while (open) handler.received(this, ClusterMessage.read(in));
+			} catch (EOFException e) {
+				// The peer closed the connection
+			} catch (IOException e) {
+				if (open) System.err.println("Lost " + this + ": " + e.getMessage());
+			}
+			close();
+		}, "Reader " + socket.getRemoteSocketAddress());
+		writer = new Thread(() -> {
+			try {
+				while (open) outgoing.take().write(out);
+			} catch (IOException e) {
+				if (open) System.err.println("Lost " + this + ": " + e.getMessage());
+			} catch (InterruptedException e) {
+				// The link has been closed
+			}
+			close();
+		}, "Writer " + socket.getRemoteSocketAddress());
+		reader.setDaemon(true);
+		writer.setDaemon(true);
+		reader.start();
+		writer.start();
+	}
+	
+	/**
+	 * Queue a message to be written, without waiting
+	 * @param message the message
+	 * @return false if the message was dropped, because the link is closed or too many messages are waiting
+	 */
+	boolean send(ClusterMessage message) {
+		return open && outgoing.offer(message);
+	}
+	
+	/**
+	 * Close the connection; the handler is told the first time this is called
+	 */
+	void close() {
+		synchronized (this) {
+			if (!open) return;
+			open = false;
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// Nothing more can be done with the socket
+		}
+		writer.interrupt();
+		handler.closed(this);
+	}
+	
+	/**
+	 * @return true iff the link has not been closed
+	 */
+	boolean isOpen() {
+		return open;
+	}
+	
+	@Override
+	public String toString() {
+		return "link to " + socket.getRemoteSocketAddress();
+	}
+}
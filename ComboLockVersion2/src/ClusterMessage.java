@@ -0,0 +1,111 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A message between the coordinator and a worker of a cluster, with its binary wire format.
+ * Every message is written as
+ *   byte   the type of the message
+ *   byte   WHEEL_COUNT, then byte WHEEL_SIZE, so that processes built with different locks reject each other
+ *   int    the island of the worker that sent the message
+ *   short  n, the number of solutions
+ * followed by n solutions, each written as WHEEL_COUNT * WHEEL_SIZE bytes, the letter index at each position
+ * wheel by wheel, and a double, the score reported by the sender.
+ */
+public class ClusterMessage {
+	static final byte HELLO = 1; // A worker has joined the cluster; there are no solutions
+	static final byte MIGRANTS = 2; // Solutions to be moved to another worker
+	static final byte BEST = 3; // The best solution a worker has found so far
+	
+	final byte type;
+	final int island; // The island of the worker that sent the message
+	final Solution[] solutions; // The solutions; when the message has been read they have not been scored
+	final double[] scores; // scores[i] is the score of solutions[i] reported by the sender
+	
+	/**
+	 * @param type the type of the message
+	 * @param island the island of the worker that sends the message
+	 * @param solutions the solutions
+	 * @param scores scores[i] is the score of solutions[i]
+	 */
+	ClusterMessage(byte type, int island, Solution[] solutions, double[] scores) {
+		if (solutions.length != scores.length) {
+			throw new IllegalArgumentException("There must be one score for each solution.");
+		}
+		this.type = type;
+		this.island = island;
+		this.solutions = solutions;
+		this.scores = scores;
+	}
+	
+	/**
+	 * Create a message with the scores of scored solutions
+	 * @param type the type of the message
+	 * @param island the island of the worker that sends the message
+	 * @param solutions the solutions, which will be scored if they have not been
+	 * @return the message
+	 */
+	static ClusterMessage of(byte type, int island, Solution... solutions) {
+		double[] scores = new double[solutions.length];
+		for (int i = 0; i < solutions.length; i++) {
+			scores[i] = solutions[i].getScore();
+		}
+		return new ClusterMessage(type, island, solutions, scores);
+	}
+	
+	/**
+	 * Write the message in the wire format
+	 * @param out the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeByte(type);
+		out.writeByte(Solution.WHEEL_COUNT);
+		out.writeByte(Solution.WHEEL_SIZE);
+		out.writeInt(island);
+		out.writeShort(solutions.length);
+		for (int i = 0; i < solutions.length; i++) {
+			out.write(solutions[i].letters);
+			out.writeDouble(scores[i]);
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Read a message in the wire format
+	 * @param in the stream to read from
+	 * @return the message, whose solutions have not been scored
+	 * @throws IOException if the stream cannot be read, or does not hold a valid message for this lock
+	 */
+	static ClusterMessage read(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		if (type != HELLO && type != MIGRANTS && type != BEST) {
+			throw new IOException("Unknown message type " + type);
+		}
+		int wheelCount = in.readUnsignedByte();
+		int wheelSize = in.readUnsignedByte();
+		if (wheelCount != Solution.WHEEL_COUNT || wheelSize != Solution.WHEEL_SIZE) {
+			throw new IOException("Message for a lock with " + wheelCount + " wheels of " + wheelSize + " letters");
+		}
+		int island = in.readInt();
+		int count = in.readUnsignedShort();
+		Solution[] solutions = new Solution[count];
+		double[] scores = new double[count];
+		byte[] letters = new byte[Solution.WHEEL_COUNT * Solution.WHEEL_SIZE];
+		for (int i = 0; i < count; i++) {
+			in.readFully(letters);
+			solutions[i] = new Solution();
+			for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+				for (int p = 0; p < Solution.WHEEL_SIZE; p++) {
+					int ndx = letters[w * Solution.WHEEL_SIZE + p];
+					if (ndx < 0 || ndx >= Solution.ALPHABET_SIZE || solutions[i].hasLetter(w, Solution.alphabet.charAt(ndx))) {
+						throw new IOException("Invalid wheel layout in message");
+					}
+					solutions[i].addLetter(w, Solution.alphabet.charAt(ndx));
+				}
+			}
+			scores[i] = in.readDouble();
+		}
+		return new ClusterMessage(type, island, solutions, scores);
+	}
+}
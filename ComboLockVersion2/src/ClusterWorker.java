@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A worker process of a cluster, which runs one island of the island model and exchanges migrants with the other
+ * workers through a ClusterCoordinator.  The worker never waits for the network: migrants are sent and received
+ * on the threads of its link, and the connection is made on a thread of its own.  While there is no connection
+ * the worker keeps evolving on its own and skips its migrations, and the connecting thread tries again after
+ * an interval that doubles with each failure.
+ */
+public class ClusterWorker implements ClusterLink.Handler {
+	static int CONNECT_TIMEOUT = 1000; // The time in ms to wait when connecting to the coordinator
+	static int RETRY_INTERVAL = 500; // The time in ms to wait after the first failed attempt to connect
+	static int MAX_RETRY_INTERVAL = 30000; // The longest time in ms to wait between attempts to connect
+	
+	private final int island;
+	private final InetSocketAddress coordinator;
+	private final ConcurrentLinkedQueue<Solution[]> inbox = new ConcurrentLinkedQueue<>(); // Migrants that have arrived
+	private volatile ClusterLink link; // The link to the coordinator, or null if there is none
+	private volatile boolean running; // Whether the island is still evolving, so the connection should be kept up
+	
+	/**
+	 * @param island the island this worker runs, which selects its seed, initialization weights and mutation budgets
+	 * @param coordinator the address of the coordinator
+	 */
+	ClusterWorker(int island, InetSocketAddress coordinator) {
+		this.island = island;
+		this.coordinator = coordinator;
+	}
+	
+	/**
+	 * Run a worker
+	 * @param args the island, then optionally the host and port of the coordinator, which default to
+	 *             Optimizer.coordinatorHost and Optimizer.clusterPort
+	 */
+	public static void main(String[] args) {
+		int island = Integer.parseInt(args[0]);
+		String host = args.length > 1 ? args[1] : Optimizer.coordinatorHost;
+		int port = args.length > 2 ? Integer.parseInt(args[2]) : Optimizer.clusterPort;
+		Solution best = new ClusterWorker(island, new InetSocketAddress(host, port)).run();
+		System.out.print("Best solution, score: ");
+		System.out.println(best.getScore());
+		System.out.println(best.toString());
+	}
+	
+	/**
+	 * Run the island, using the parameters in Optimizer
+	 * @return the best solution found on the island
+	 */
+	Solution run() {
+		long seed = new RandomStreams(Optimizer.SEED).forIsland(island).nextLong();
+		double[] weights = Optimizer.islandInitOpWeights[island % Optimizer.islandInitOpWeights.length];
+		int[] maxMutations = Optimizer.islandMutationMaxTimes[island % Optimizer.islandMutationMaxTimes.length];
+		Population population = new Population(Optimizer.initOps, weights, Optimizer.populationSize, seed);
+		population.setName("Island " + island);
+		running = true;
+		Thread connector = new Thread(this::keepConnected, "Island " + island + " connector");
+		connector.setDaemon(true);
+		connector.start();
+		double reported = Double.NEGATIVE_INFINITY; // The best score that has been reported to the coordinator
+		for (int g = 0; g < Optimizer.generations; g++) {
+			population.runGeneration(Optimizer.mutationOperators, maxMutations);
+			Solution[] arrived;
+			while ((arrived = inbox.poll()) != null) {
+				population.immigrate(arrived);
+			}
+			if ((g + 1) % Optimizer.migrationInterval == 0) {
+				if (isConnected()) {
+					send(ClusterMessage.of(ClusterMessage.MIGRANTS, island, population.getElite(Optimizer.migrants)));
+				}
+				else if (Optimizer.VERBOSITY > 0) {
+					System.err.println("Island " + island + " skipped a migration, as it has no coordinator");
+				}
+			}
+			if (population.getBest().getScore() > reported && isConnected()
+					&& send(ClusterMessage.of(ClusterMessage.BEST, island, population.getBest().copy()))) {
+				reported = population.getBest().getScore();
+			}
+		}
+		running = false;
+		connector.interrupt();
+		ClusterLink last = link;
+		link = null;
+		if (last != null) last.close();
+		return population.getBest();
+	}
+	
+	/**
+	 * Keep a connection to the coordinator while the island is running.  This runs on a thread of its own, so
+	 * that the island never waits for the network.
+	 */
+	private void keepConnected() {
+		int interval = RETRY_INTERVAL;
+		boolean reportedFailure = false; // Whether the current failure to connect has been reported
+		try {
+			while (running) {
+				if (!isConnected()) {
+					try {
+						connect();
+						interval = RETRY_INTERVAL;
+						reportedFailure = false;
+					} catch (IOException e) {
+						if (!reportedFailure) {
+							System.err.println("Island " + island + " could not reach the coordinator, running alone: "
+									+ e.getMessage());
+							reportedFailure = true;
+						}
+						Thread.sleep(interval);
+						interval = Math.min(interval * 2, MAX_RETRY_INTERVAL);
+						continue;
+					}
+				}
+				synchronized (this) {
+					while (running && isConnected()) wait(); // Woken by closed
+				}
+			}
+		} catch (InterruptedException e) {
+			// The island has finished
+		}
+	}
+	
+	/**
+	 * Connect to the coordinator and join the cluster
+	 * @throws IOException if the coordinator cannot be reached
+	 */
+	private void connect() throws IOException {
+		Socket socket = new Socket();
+		ClusterLink joined;
+		try {
+			socket.connect(coordinator, CONNECT_TIMEOUT);
+			joined = new ClusterLink(socket, this);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		joined.send(ClusterMessage.of(ClusterMessage.HELLO, island));
+		link = joined;
+		if (!running) joined.close(); // The island finished while we were connecting
+	}
+	
+	/**
+	 * @return true iff there is an open link to the coordinator
+	 */
+	private boolean isConnected() {
+		ClusterLink current = link;
+		return current != null && current.isOpen();
+	}
+	
+	/**
+	 * Send a message to the coordinator, dropping it if it cannot be sent
+	 * @param message the message
+	 * @return true iff the message was queued
+	 */
+	private boolean send(ClusterMessage message) {
+		ClusterLink current = link;
+		if (current != null && current.send(message)) return true;
+		if (Optimizer.VERBOSITY > 0) {
+			System.err.println("Island " + island + " dropped a message for the coordinator");
+		}
+		return false;
+	}
+	
+	@Override
+	public void received(ClusterLink link, ClusterMessage message) {
+		if (message.type == ClusterMessage.MIGRANTS) {
+			inbox.add(message.solutions);
+		}
+	}
+	
+	@Override
+	public void closed(ClusterLink link) {
+		if (link == this.link && running) {
+			System.err.println("Island " + island + " lost the coordinator, running alone");
+			synchronized (this) {
+				notifyAll(); // Let the connecting thread try again
+			}
+		}
+	}
+}
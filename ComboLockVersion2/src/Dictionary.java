@@ -1,57 +1,154 @@
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 /**
  * A class with static methods that represent a collection of words. 
- * The maximum word length is indicated by the WHEEL_COUNT field of the Solution class.  All words from the words.txt file with
+ * The maximum word length is indicated by the WHEEL_COUNT field of the Solution class.  All words from the word list with
  * a length less than or equal to the maximum are stored in the collection.
  * Words containing non-alphabetic symbols are ignored.
+ * The words are loaded from a binary snapshot (see DictionarySnapshot) if there is an up to date one, and otherwise from
+ * words_with_frequency.txt, which has a word and its frequency on each line, or words.txt, which has one word per line.
  * The words themselves are stored as arrays of integers with a 1 corresponding to 'a', 2 to 'b', ..., and 26 to 'z'
  * For words less than the maximum length a 0 is used to represent a space.
  */
 public class Dictionary {
+	static String SNAPSHOT_FILE = "words.snapshot"; // The binary snapshot of the dictionary
+	static String[] WORD_FILES = {"words_with_frequency.txt", "words.txt"}; // The word lists, in order of preference
+	
 	static ArrayList<String> rawWords = new ArrayList<>();
-	static Map<Character,Integer>[] commonLetters = new Map[Solution.WHEEL_COUNT]; // frequency of the letters at each index
+	static long[] frequencies; // frequencies[id] is how often the word with that id occurs, or 1 if the word list has
+							  // no frequencies
+	static int[][] letterCounts; // letterCounts[w][l] is the number of words with letter index l at position w
+	static byte[] codes; // codes[id * WHEEL_COUNT + w] is the letter index at position w of the word with that id
+	private static long[] tier; // A bitset of the ids of the most frequent words, or null if it has not been built
+	static long[][][] index; // index[w][l] is a bitset of the ids (positions in rawWords) of the words that have
+							 // letter index l at position w
+	private static final Metrics.Counter scans = Metrics.counter("dictionary.scans");
+	private static final Metrics.Histogram scanTimes = Metrics.histogram("dictionary.scan");
 	
 	/**
 	 * Load the dictionary
 	 */
 	static {
-		int wordSize = Solution.WHEEL_COUNT;
-		Scanner sc;
-		try {
-			sc = new Scanner(new File("words_with_frequency.txt"));
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException("Missing word list");
+		File snapshot = new File(SNAPSHOT_FILE);
+		File wordFile = findWordFile();
+		boolean loaded = false;
+		if (snapshot.exists() && (wordFile == null || wordFile.lastModified() <= snapshot.lastModified())) {
+			try {
+				DictionarySnapshot.load(snapshot);
+				loaded = true;
+			} catch (IOException e) {
+				System.err.println("Ignoring dictionary snapshot " + snapshot + ": " + e.getMessage());
+			}
 		}
-		while (sc.hasNext()) {
-			String word = sc.next().toLowerCase();
-			Long count = sc.nextLong();
-			boolean ok = true;
-			if (word.length() > wordSize) { 
-				ok = false;
+		if (!loaded) {
+			if (wordFile == null) {
+				throw new RuntimeException("Missing word list");
 			}
-			for (int i = 0; ok && i < word.length(); i++) {
-				if (word.charAt(i) < 'a' || word.charAt(i) > 'z') ok = false;
+			try {
+				loadText(wordFile);
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot read word list " + wordFile + ": " + e.getMessage());
 			}
-			
-			if (ok) {
-				while (word.length() < Solution.WHEEL_COUNT)
-					word += ' ';
-				rawWords.add(word);
-				for (int i = 0; i < word.length(); i++) {
-					if(commonLetters[i] == null){
-						commonLetters[i] = new HashMap<Character,Integer>();
+		}
+	}
+	
+	/**
+	 * @return the first of WORD_FILES that exists, or null
+	 */
+	static File findWordFile() {
+		for (String name : WORD_FILES) {
+			File file = new File(name);
+			if (file.exists()) return file;
+		}
+		return null;
+	}
+	
+	/**
+	 * Load the dictionary from a word list, replacing the words that have been loaded.
+	 * Each line holds a word, optionally followed by its frequency.
+	 * @param file the word list
+	 * @throws IOException if the word list cannot be read
+	 */
+	static void loadText(File file) throws IOException {
+		int wordSize = Solution.WHEEL_COUNT;
+		rawWords = new ArrayList<>();
+		ArrayList<Long> counts = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) continue;
+				String word = line;
+				long count = 1;
+				int split = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+				if (split > 0) {
+					try {
+						count = Long.parseLong(line.substring(split + 1));
+						word = line.substring(0, split).trim();
+					} catch (NumberFormatException e) {
+						// There is no frequency column
 					}
-					//keeps the position and the count of how many times a letter has been seen in a word
-					commonLetters[i].put(word.charAt(i), commonLetters[i].getOrDefault(word.charAt(i), 0) + 1);
+				}
+				word = word.toLowerCase();
+				boolean ok = true;
+				if (word.length() > wordSize) { 
+					ok = false;
+				}
+				for (int i = 0; ok && i < word.length(); i++) {
+					if (word.charAt(i) < 'a' || word.charAt(i) > 'z') ok = false;
+				}
+				
+				if (ok) {
+					while (word.length() < Solution.WHEEL_COUNT)
+						word += ' ';
+					rawWords.add(word);
+					counts.add(count);
 				}
 			}
 		}
-		sc.close();
+		frequencies = new long[counts.size()];
+		for (int i = 0; i < frequencies.length; i++) frequencies[i] = counts.get(i);
+		buildIndex();
+	}
+	
+	/**
+	 * Encode the words as letter indices, count the letters at each position, and build the inverted index from
+	 * each position and letter to the words that have that letter at that position
+	 */
+	private static void buildIndex() {
+		int blocks = (rawWords.size() + 63) / 64;
+		index = new long[Solution.WHEEL_COUNT][Solution.ALPHABET_SIZE][blocks];
+		codes = new byte[rawWords.size() * Solution.WHEEL_COUNT];
+		letterCounts = new int[Solution.WHEEL_COUNT][Solution.ALPHABET_SIZE];
+		for (int id = 0; id < rawWords.size(); id++) {
+			String word = rawWords.get(id);
+			for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+				int letter = Solution.letterIndex(word.charAt(w));
+				codes[id * Solution.WHEEL_COUNT + w] = (byte) letter;
+				index[w][letter][id >> 6] |= 1L << id;
+				letterCounts[w][letter]++;
+			}
+		}
+	}
+	
+	/**
+	 * Rebuild the words from their codes, after the codes have been loaded
+	 */
+	static void buildWords() {
+		int count = codes.length / Solution.WHEEL_COUNT;
+		rawWords = new ArrayList<>(count);
+		char[] word = new char[Solution.WHEEL_COUNT];
+		for (int id = 0; id < count; id++) {
+			for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+				word[w] = Solution.alphabet.charAt(codes[id * Solution.WHEEL_COUNT + w]);
+			}
+			rawWords.add(new String(word));
+		}
 	}
 	
 	/**
@@ -62,26 +159,162 @@ public class Dictionary {
 	 * @return a list of words in the dictionary that can be represented on the lock
 	 */
 	static ArrayList<String> score(Solution solution) {
-		ArrayList<String> list = new ArrayList<>();
-		for (String s: rawWords) {
-			boolean ok = true;
-			for (int j = 0; ok && j < s.length(); j++) {
-				if (!solution.hasLetter(j, s.charAt(j))) ok = false;
+		return words(ids(makeable(solution)));
+	}
+	
+	/**
+	 * Convert a bitset of word ids to an array
+	 * @param wordSet the bitset
+	 * @return the ids of the bits that are set, in increasing order
+	 */
+	static int[] ids(long[] wordSet) {
+		int count = 0;
+		for (long bits : wordSet) count += Long.bitCount(bits);
+		int[] retVal = new int[count];
+		count = 0;
+		for (int b = 0; b < wordSet.length; b++) {
+			long bits = wordSet[b];
+			while (bits != 0) {
+				retVal[count++] = (b << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
 			}
-			if (ok) list.add(s);
 		}
+		return retVal;
+	}
+	
+	/**
+	 * Count the words in a bitset of word ids
+	 * @param wordSet the bitset
+	 * @return the number of bits that are set
+	 */
+	static int count(long[] wordSet) {
+		int count = 0;
+		for (long bits : wordSet) count += Long.bitCount(bits);
+		return count;
+	}
+	
+	/**
+	 * Look up a letter of a word by id
+	 * @param id the word id
+	 * @param position the position in the word, which is also the wheel it is on
+	 * @return the letter
+	 */
+	static char getLetter(int id, int position) {
+		return Solution.alphabet.charAt(codes[id * Solution.WHEEL_COUNT + position]);
+	}
+	
+	/**
+	 * Look up words by id
+	 * @param ids the word ids
+	 * @return a list with the word for each id, in the same order
+	 */
+	static ArrayList<String> words(int[] ids) {
+		ArrayList<String> list = new ArrayList<>(ids.length);
+		for (int id : ids) list.add(rawWords.get(id));
 		return list;
 	}
+	
+	/**
+	 * Return the ids of the words in the dictionary that can be made with a given lock configuration.
+	 * For each position the bitsets of the letters on that wheel are or-ed together, and the results
+	 * for the positions are and-ed together.
+	 *
+	 * @param solution the lock configuration
+	 * @return a bitset in which bit id is set iff rawWords.get(id) can be represented on the lock
+	 */
+	static long[] makeable(Solution solution) {
+		return makeable(solution.masks);
+	}
+	
+	/**
+	 * Return the ids of the words in the dictionary that can be made on a lock with given sets of letters
+	 * @param masks bit l of masks[w] is set iff letter index l is on wheel w
+	 * @return a bitset in which bit id is set iff rawWords.get(id) can be represented on the lock
+	 */
+	static long[] makeable(int[] masks) {
+		long start = Optimizer.COLLECT_METRICS ? System.nanoTime() : 0;
+		int blocks = (rawWords.size() + 63) / 64;
+		long[] retVal = new long[blocks];
+		int[][] wheelLetters = new int[Solution.WHEEL_COUNT][];
+		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+			int mask = masks[w];
+			wheelLetters[w] = new int[Integer.bitCount(mask)];
+			for (int i = 0; mask != 0; i++) {
+				wheelLetters[w][i] = Integer.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+			}
+		}
+		for (int b = 0; b < blocks; b++) {
+			long bits = -1L;
+			for (int w = 0; bits != 0 && w < Solution.WHEEL_COUNT; w++) {
+				long wheelBits = 0L;
+				for (int l : wheelLetters[w]) {
+					wheelBits |= index[w][l][b];
+				}
+				bits &= wheelBits;
+			}
+			retVal[b] = bits;
+		}
+		if (Optimizer.COLLECT_METRICS) {
+			scans.increment();
+			scanTimes.record(System.nanoTime() - start);
+		}
+		return retVal;
+	}
 
 	
+	/**
+	 * Return the tier of the Optimizer.coarseTierSize most frequent words, which is used to estimate the fitness
+	 * of a lock cheaply.  Words with the same frequency are taken in dictionary order, so if the word list has no
+	 * frequencies the tier is the start of the dictionary.
+	 * @return a bitset of the ids of the words in the tier; it is shared and must not be modified
+	 */
+	static synchronized long[] getTier() {
+		if (tier == null) {
+			Integer[] order = new Integer[rawWords.size()];
+			for (int id = 0; id < order.length; id++) order[id] = id;
+			Arrays.sort(order, (a, b) -> Long.compare(frequencies[b], frequencies[a]));
+			long[] retVal = new long[(rawWords.size() + 63) / 64];
+			for (int i = 0; i < Math.min(Optimizer.coarseTierSize, order.length); i++) {
+				retVal[order[i] >> 6] |= 1L << order[i];
+			}
+			tier = retVal;
+		}
+		return tier;
+	}
+	
 	/**
 	 * Get a random word from the dictionary
 	 * 
+	 * @param rng the random number generator to use
 	 * @return a word from the dictionary chosen at random, with letter encoded as described in the 
 	 *         header comment for this class
 	 */
-	static String getRandomWord() {
-		int i = Optimizer.prng.nextInt(rawWords.size());
+	static String getRandomWord(SplittableRandom rng) {
+		int i = rng.nextInt(rawWords.size());
 		return rawWords.get(i);
 	}
+	
+	/**
+	 * Choose a word that is not in a set of words uniformly at random, by selecting a clear bit of the bitset
+	 * directly rather than drawing words until one is not in the set
+	 * @param wordSet a bitset of word ids, as returned by makeable
+	 * @param rng the random number generator to use
+	 * @return the id of the word, or -1 if every word is in the set
+	 */
+	static int getRandomWordNotIn(long[] wordSet, SplittableRandom rng) {
+		int missing = rawWords.size() - count(wordSet);
+		if (missing == 0) return -1;
+		int k = rng.nextInt(missing);
+		for (int b = 0; ; b++) {
+			long clear = ~wordSet[b];
+			if (b == wordSet.length - 1 && (rawWords.size() & 63) != 0) clear &= (1L << rawWords.size()) - 1; // Past the last word
+			int n = Long.bitCount(clear);
+			if (k < n) {
+				for (; k > 0; k--) clear &= clear - 1;
+				return (b << 6) + Long.numberOfTrailingZeros(clear);
+			}
+			k -= n;
+		}
+	}
 }
@@ -0,0 +1,121 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * A binary snapshot of the dictionary, which loads much faster than a word list.
+ * All values are big-endian:
+ *   int    MAGIC, then int VERSION
+ *   int    WHEEL_COUNT, then int ALPHABET_SIZE, which must match those of the lock
+ *   int    n, the number of words
+ *   byte   the codes of the words (Dictionary.codes), n * WHEEL_COUNT of them
+ *   long   the frequency of each word, n of them
+ *   int    the letter counts (Dictionary.letterCounts), WHEEL_COUNT * ALPHABET_SIZE of them
+ *   long   the inverted index (Dictionary.index), WHEEL_COUNT * ALPHABET_SIZE * ((n + 63) / 64) of them
+ * Run main to compile a word list into a snapshot.
+ */
+public class DictionarySnapshot {
+	static final int MAGIC = 0x434C4B44; // "CLKD"
+	static final int VERSION = 1;
+	
+	/**
+	 * Compile a word list into a snapshot
+	 * @param args the word list, which defaults to the first of Dictionary.WORD_FILES that exists, and the snapshot,
+	 *             which defaults to Dictionary.SNAPSHOT_FILE
+	 */
+	public static void main(String[] args) throws IOException {
+		File wordFile = args.length > 0 ? new File(args[0]) : Dictionary.findWordFile();
+		File snapshot = new File(args.length > 1 ? args[1] : Dictionary.SNAPSHOT_FILE);
+		if (wordFile == null) {
+			throw new IllegalArgumentException("Missing word list");
+		}
+		Dictionary.loadText(wordFile);
+		write(snapshot);
+		System.out.println("Wrote " + Dictionary.rawWords.size() + " words from " + wordFile + " to " + snapshot);
+	}
+	
+	/**
+	 * Write the dictionary that has been loaded to a snapshot
+	 * @param file the snapshot
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	static void write(File file) throws IOException {
+		int count = Dictionary.rawWords.size();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(Solution.WHEEL_COUNT);
+			out.writeInt(Solution.ALPHABET_SIZE);
+			out.writeInt(count);
+			out.write(Dictionary.codes, 0, count * Solution.WHEEL_COUNT);
+			for (int id = 0; id < count; id++) out.writeLong(Dictionary.frequencies[id]);
+			for (int[] counts : Dictionary.letterCounts) {
+				for (int c : counts) out.writeInt(c);
+			}
+			for (long[][] position : Dictionary.index) {
+				for (long[] bits : position) {
+					for (long b : bits) out.writeLong(b);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Load the dictionary from a snapshot.  The file is read in one go and its sections are copied into the
+	 * arrays of Dictionary with bulk gets.  The file is not mapped: the scoring loops need those arrays on the heap,
+	 * and the words are rebuilt as Strings, so a mapping would be copied in full just the same.
+	 * @param file the snapshot
+	 * @throws IOException if the snapshot cannot be read, or is not a valid snapshot for this lock
+	 */
+	static void load(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		try {
+			if (buffer.getInt() != MAGIC) throw new IOException("Not a dictionary snapshot");
+			int version = buffer.getInt();
+			if (version != VERSION) throw new IOException("Snapshot version " + version + ", expected " + VERSION);
+			int wheelCount = buffer.getInt();
+			int alphabetSize = buffer.getInt();
+			if (wheelCount != Solution.WHEEL_COUNT || alphabetSize != Solution.ALPHABET_SIZE) {
+				throw new IOException("Snapshot for words of length " + wheelCount + " over " + alphabetSize + " symbols");
+			}
+			int count = buffer.getInt();
+			int blocks = (count + 63) / 64;
+			byte[] codes = new byte[count * wheelCount];
+			buffer.get(codes);
+			long[] frequencies = new long[count];
+			buffer.asLongBuffer().get(frequencies);
+			advance(buffer, count * 8L);
+			int[][] letterCounts = new int[wheelCount][alphabetSize];
+			for (int[] counts : letterCounts) {
+				buffer.asIntBuffer().get(counts);
+				advance(buffer, alphabetSize * 4L);
+			}
+			long[][][] index = new long[wheelCount][alphabetSize][blocks];
+			for (long[][] position : index) {
+				for (long[] bits : position) {
+					buffer.asLongBuffer().get(bits);
+					advance(buffer, blocks * 8L);
+				}
+			}
+			Dictionary.codes = codes;
+			Dictionary.frequencies = frequencies;
+			Dictionary.letterCounts = letterCounts;
+			Dictionary.index = index;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Truncated snapshot");
+		}
+		Dictionary.buildWords();
+	}
+	
+	/**
+	 * Skip over values that have been read through a view of the buffer
+	 */
+	private static void advance(ByteBuffer buffer, long bytes) {
+		buffer.position(buffer.position() + (int) bytes);
+	}
+}
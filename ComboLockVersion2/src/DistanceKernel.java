@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Scratch space for computing the fitness of a lock without allocating.
+ * The words that can be made are encoded as letter indices, and the number of turns between any two
+ * letters on a wheel is looked up in a table, so the distance between two words is WHEEL_COUNT table
+ * lookups.  Each thread has its own kernel, which is reused for every lock that thread scores.
+ */
+public class DistanceKernel {
+	private static final int TABLE_SIZE = Solution.ALPHABET_SIZE * Solution.ALPHABET_SIZE; // The entries per wheel
+	private static final ThreadLocal<DistanceKernel> kernels = ThreadLocal.withInitial(DistanceKernel::create);
+	private static final String VECTOR_KERNEL = "VectorDistanceKernel"; // Built from a separate source root, as it
+																		// needs the jdk.incubator.vector module
+	private static boolean warned; // Whether we have reported that the vector kernel is unavailable
+	private static final Metrics.Histogram scoreTimes = Metrics.histogram("kernel.score");
+	private static final Metrics.Counter scans = Metrics.counter("kernel.neighbourScans");
+	private static final Metrics.Counter comparisons = Metrics.counter("kernel.neighbourScans.words");
+	
+	byte[] codes = new byte[0]; // codes[i * WHEEL_COUNT + w] is the letter index at position w of word i
+	final byte[] table = new byte[Solution.WHEEL_COUNT * TABLE_SIZE]; // table[w * TABLE_SIZE + a * ALPHABET_SIZE + b]
+																	  // is the number of turns from letter a to b on wheel w
+	private int[] counts = new int[0]; // Scratch space for the counting sort in score
+	int size; // The number of words that have been encoded
+	
+	/**
+	 * Create a kernel for a thread, using the vector kernel if it has been requested, it is on the class path,
+	 * and the jdk.incubator.vector module is available
+	 * @return a new kernel
+	 */
+	private static DistanceKernel create() {
+		if (Optimizer.USE_VECTOR_KERNEL) {
+			String reason = "jdk.incubator.vector is not available";
+			if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+				try {
+					return (DistanceKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+				} catch (ReflectiveOperationException e) {
+					reason = VECTOR_KERNEL + " is not on the class path";
+				} catch (LinkageError e) {
+					// Fall through to the scalar kernel
+				}
+			}
+			synchronized (DistanceKernel.class) {
+				if (!warned) {
+					System.err.println(reason + ", using the scalar distance kernel");
+					warned = true;
+				}
+			}
+		}
+		return new DistanceKernel();
+	}
+	
+	/**
+	 * Prepare the kernel of the current thread for a lock
+	 * @param solution the lock configuration
+	 * @param wordIds the dictionary ids of the words that can be made on the lock
+	 * @return the kernel, which is valid until the next call to prepare on the same thread
+	 */
+	static DistanceKernel prepare(Solution solution, int[] wordIds) {
+		DistanceKernel kernel = kernels.get();
+		kernel.encode(solution, wordIds);
+		return kernel;
+	}
+	
+	/**
+	 * Encode the words and build the distance table for a lock
+	 * @param solution the lock configuration
+	 * @param wordIds the dictionary ids of the words that can be made on the lock
+	 */
+	void encode(Solution solution, int[] wordIds) {
+		int wheelCount = Solution.WHEEL_COUNT;
+		size = wordIds.length;
+		if (codes.length < size * wheelCount) {
+			codes = new byte[Math.max(size * wheelCount, codes.length * 2)];
+		}
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(Dictionary.codes, wordIds[i] * wheelCount, codes, i * wheelCount, wheelCount);
+		}
+		for (int w = 0; w < wheelCount; w++) {
+			int wheelSize = solution.getWheelSize(w);
+			for (int mask1 = solution.getMask(w); mask1 != 0; mask1 &= mask1 - 1) {
+				int a = Integer.numberOfTrailingZeros(mask1);
+				int pos1 = solution.positions[w * Solution.ALPHABET_SIZE + a];
+				for (int mask2 = solution.getMask(w); mask2 != 0; mask2 &= mask2 - 1) {
+					int b = Integer.numberOfTrailingZeros(mask2);
+					int steps = Math.abs(pos1 - solution.positions[w * Solution.ALPHABET_SIZE + b]);
+					steps = Math.min(steps, wheelSize - steps);
+					table[w * TABLE_SIZE + a * Solution.ALPHABET_SIZE + b] = (byte) steps;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Return the distance between two of the encoded words
+	 * @param i the index of the first word
+	 * @param j the index of the second word
+	 * @return the number of turns needed to move from one word to the other
+	 */
+	int distance(int i, int j) {
+		int wheelCount = Solution.WHEEL_COUNT;
+		int off1 = i * wheelCount;
+		int off2 = j * wheelCount;
+		int retVal = 0;
+		for (int w = 0; w < wheelCount; w++) {
+			retVal += table[w * TABLE_SIZE + codes[off1 + w] * Solution.ALPHABET_SIZE + codes[off2 + w]];
+		}
+		return retVal;
+	}
+	
+	/**
+	 * Find the closest and next closest words to a word by scanning the words in dictionary order.
+	 * The scan stops as soon as two words within a distance of 2 have been seen.
+	 * @param i the index of the word
+	 * @param wordIds the dictionary ids of the encoded words
+	 * @param graph the graph to record the neighbours in
+	 */
+	void findNeighbours(int i, int[] wordIds, NeighbourGraph graph) {
+		int closest = Integer.MAX_VALUE;
+		int closestNext = Integer.MAX_VALUE;
+		int closestNdx = -1;
+		int closestNextNdx = -1;
+		int scanned = size;
+		for (int j = 0; j < size; j++) {
+			if (j == i) continue;
+			int wordDist = distance(i, j);
+			if (wordDist < closest) {
+				closestNext = closest;
+				closestNextNdx = closestNdx;
+				closest = wordDist;
+				closestNdx = j;
+			}
+			if (wordDist < closestNext && j != closestNdx) {
+				closestNext = wordDist;
+				closestNextNdx = j;
+			}
+			if (closestNext == 2) { // Already found two words very close
+				scanned = j + 1;
+				break;
+			}
+		}
+		graph.set(i, closestNdx < 0 ? -1 : wordIds[closestNdx], closest,
+				closestNextNdx < 0 ? -1 : wordIds[closestNextNdx], closestNext);
+		if (Optimizer.COLLECT_METRICS) recordScan(scanned);
+	}
+	
+	/**
+	 * Count a search for the neighbours of a word
+	 * @param scanned the number of words that the search went through
+	 */
+	static void recordScan(int scanned) {
+		scans.increment();
+		comparisons.add(scanned);
+	}
+	
+	/**
+	 * Compute the fitness of a lock from the neighbours of its words.  Each word contributes one plus
+	 * the average distance to its two closest words; the contributions are sorted and accumulated.
+	 * The sums of two distances are small integers, so a counting sort replaces a sort of doubles.
+	 * @param graph the neighbour graph of the lock
+	 * @return the score, exactly as Arrays.sort on the contributions would produce it
+	 */
+	double score(NeighbourGraph graph) {
+		int n = graph.size();
+		if (n == 0) return 0.0;
+		long start = Optimizer.COLLECT_METRICS ? System.nanoTime() : 0;
+		double adjustment = -1.0;
+		int maxSum = 0;
+		boolean bounded = true;
+		for (int i = 0; i < n; i++) {
+			int closestDist = graph.getClosestDist(i);
+			int nextDist = graph.getNextDist(i);
+			if (nextDist == Integer.MAX_VALUE) bounded = false;
+			double ave = (closestDist + nextDist) / 2.0;
+			double aveMinusClsDist = ave - closestDist;
+			if(aveMinusClsDist > adjustment){
+				adjustment = aveMinusClsDist;
+			}
+			maxSum = Math.max(maxSum, closestDist + nextDist);
+		}
+		double score = 0.0;
+		double aveSoFar = 0.0;
+		if (!bounded) {
+			// Fewer than three words, so the sums of the sentinel distances overflow; sort them as before
+			double[] overallAve = new double[n];
+			for (int i = 0; i < n; i++) {
+				overallAve[i] = 1 + (graph.getClosestDist(i) + graph.getNextDist(i)) / 2.0;
+			}
+			Arrays.sort(overallAve);
+			for (double ave : overallAve) {
+				aveSoFar = ave + aveSoFar;
+				score += aveSoFar;
+			}
+		}
+		else {
+			if (counts.length <= maxSum) {
+				counts = new int[maxSum + 1];
+			}
+			Arrays.fill(counts, 0, maxSum + 1, 0);
+			for (int i = 0; i < n; i++) {
+				counts[graph.getClosestDist(i) + graph.getNextDist(i)]++;
+			}
+			for (int sum = 0; sum <= maxSum; sum++) {
+				double ave = 1 + sum / 2.0;
+				for (int c = counts[sum]; c > 0; c--) {
+					aveSoFar = ave + aveSoFar;
+					score += aveSoFar;
+				}
+			}
+		}
+		score -= adjustment;
+		score /= n;
+		if (Optimizer.COLLECT_METRICS) scoreTimes.record(System.nanoTime() - start);
+		return score;
+	}
+}
@@ -0,0 +1,24 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for the calculation of the fitness of a lock configuration
+ */
+@Name("combolock.Evaluation")
+@Label("Evaluation")
+@Category("Combination Lock")
+@Description("The fitness of a lock configuration was calculated")
+class EvaluationEvent extends Event {
+	@Label("Words")
+	int words;
+	
+	@Label("Fitness")
+	double fitness;
+	
+	@Label("Derived")
+	@Description("Whether the neighbours were derived from those of the configuration it was mutated from")
+	boolean derived;
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the fitness of lock configurations, keyed by their canonical wheel layouts (see
+ * Solution.getCanonicalLetters) packed into 5 bits per letter, so that rotated and reversed wheels share an
+ * entry.  The greedy mutation process and the crossover often produce configurations that were scored before,
+ * and a hit saves the whole evaluation.  Lookups do not lock; when the cache is full, an entry is evicted with
+ * the CLOCK algorithm, which passes over the entries that have been used since it last came round to them.
+ */
+public class FitnessCache {
+	static int CAPACITY = 8192; // The maximum number of configurations to remember
+	
+	private static final ConcurrentHashMap<Key, Entry> cache = new ConcurrentHashMap<>();
+	private static Key[] clock; // The keys in the cache, in the order the clock hand visits them
+	private static int used; // The number of keys in clock
+	private static int hand; // The index in clock of the next key to consider for eviction
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	
+	static {
+		Metrics.gauge("fitnessCache.hits", FitnessCache::getHits);
+		Metrics.gauge("fitnessCache.misses", FitnessCache::getMisses);
+	}
+	
+	/**
+	 * Give a configuration the fitness and the number of words that were remembered for it.
+	 * The words themselves are found again if they are needed.
+	 * @param solution the configuration, which has not been scored
+	 * @return true iff the configuration was in the cache
+	 */
+	static boolean restore(Solution solution) {
+		Entry entry = cache.get(new Key(solution.getCanonicalLetters()));
+		if (entry == null) {
+			misses.increment();
+			return false;
+		}
+		hits.increment();
+		entry.referenced = true;
+		solution.wordCount = entry.wordCount;
+		solution.score = entry.score;
+		return true;
+	}
+	
+	/**
+	 * Remember the fitness and the number of words of a configuration
+	 * @param solution the configuration, which has been scored
+	 */
+	static void store(Solution solution) {
+		Key key = new Key(solution.getCanonicalLetters());
+		Entry entry = new Entry(solution);
+		synchronized (cache) {
+			if (cache.containsKey(key)) return;
+			if (clock == null) clock = new Key[CAPACITY];
+			if (used < clock.length) {
+				clock[used++] = key;
+			}
+			else {
+				while (true) {
+					Entry candidate = cache.get(clock[hand]);
+					if (!candidate.referenced) break;
+					candidate.referenced = false;
+					hand = (hand + 1) % clock.length;
+				}
+				cache.remove(clock[hand]);
+				clock[hand] = key;
+				hand = (hand + 1) % clock.length;
+			}
+			cache.put(key, entry);
+		}
+	}
+	
+	/**
+	 * @return the number of configurations whose fitness was found in the cache
+	 */
+	static long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return the number of configurations that had to be evaluated
+	 */
+	static long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * The fitness of a configuration and the number of words that can be made on it
+	 */
+	private static class Entry {
+		final double score;
+		final int wordCount;
+		volatile boolean referenced; // Has the entry been used since the clock hand last passed it
+		
+		Entry(Solution solution) {
+			score = solution.score;
+			wordCount = solution.wordCount;
+		}
+	}
+	
+	/**
+	 * A canonical wheel layout, with the letter index at each position packed into 5 bits
+	 */
+	private static class Key {
+		private final long[] packed;
+		private final int hash;
+		
+		Key(byte[] letters) {
+			packed = new long[(letters.length * 5 + 63) / 64];
+			for (int i = 0; i < letters.length; i++) {
+				int bit = i * 5;
+				packed[bit >> 6] |= (long) letters[i] << (bit & 63);
+				if ((bit & 63) > 59) packed[(bit >> 6) + 1] |= (long) letters[i] >>> (64 - (bit & 63));
+			}
+			hash = Arrays.hashCode(packed);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(packed, ((Key) obj).packed);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
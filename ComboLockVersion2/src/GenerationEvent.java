@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for a generation of a population, from the selection of the first parents to the
+ * statistics of the survivors
+ */
+@Name("combolock.Generation")
+@Label("Generation")
+@Category("Combination Lock")
+@Description("A generation of the genetic algorithm")
+class GenerationEvent extends Event {
+	@Label("Population")
+	String population;
+	
+	@Label("Generation")
+	int generation;
+	
+	@Label("Best Fitness")
+	double best;
+	
+	@Label("Average Fitness")
+	double average;
+	
+	@Label("Evaluations")
+	long evaluations;
+}
@@ -1,3 +1,5 @@
+import java.util.SplittableRandom;
+
 /**
  * Create an initial lock configuration by choosing random words from the dictionary and
  * adding letters from these words to the configuration
@@ -9,16 +11,26 @@ public class InitOpChooseWords extends InitializationOperator{
 	/**
 	 * Create an initial solution
 	 * 
+	 * @param rng the random number generator to use
 	 * @return a lock configuration using the strategy described in the class header
 	 * 
 	 */
 	@Override
-	public Solution run() {
+	public Solution run(SplittableRandom rng) {
 		Solution retVal = new Solution();
 		
 		boolean done = false;
+		int[] masks = new int[Solution.WHEEL_COUNT];
 		while (!done) {
-			String word = Dictionary.getRandomWord();
+			// Only the words that would add a letter to a wheel that is not full are drawn, since the others
+			// leave the configuration as it is.  These are the words that cannot be made on the configuration
+			// with every letter on the full wheels.
+			for (int i = 0; i < Solution.WHEEL_COUNT; i++) {
+				masks[i] = retVal.getWheelSize(i) < Solution.WHEEL_SIZE ? retVal.getMask(i) : (1 << Solution.ALPHABET_SIZE) - 1;
+			}
+			int id = Dictionary.getRandomWordNotIn(Dictionary.makeable(masks), rng);
+			if (id < 0) break; // No word has a letter that is missing from the wheels that are not full
+			String word = Dictionary.rawWords.get(id);
 			for (int i = 0; i < Solution.WHEEL_COUNT; i++) {
 				if (retVal.getWheelSize(i) < Solution.WHEEL_SIZE && !retVal.hasLetter(i, word.charAt(i))) { 
 					retVal.addLetter(i, word.charAt(i));
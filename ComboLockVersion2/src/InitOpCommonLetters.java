@@ -1,5 +1,4 @@
-import java.util.HashMap;
-import java.util.Map;
+import java.util.SplittableRandom;
 /**
  * Create an initial lock configuration by choosing the 10 most common letters for
  * each word position and adding these letters to the configuration
@@ -11,42 +10,19 @@ public class InitOpCommonLetters extends InitializationOperator{
     /**
      * Create an initial solution
      *
+     * @param rng the random number generator to use
      * @return a lock configuration using the strategy described in the class header
      *
      */
     @Override
-    public Solution run() {
+    public Solution run(SplittableRandom rng) {
         Solution retVal = new Solution();
-        Map<Character,Integer>[] letterCounts = new Map[Dictionary.commonLetters.length];
-        for(int i = 0; i < letterCounts.length; i++) {letterCounts[i] = new HashMap<Character, Integer>(Dictionary.commonLetters[i]);}
 
         for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-            while (retVal.getWheelSize(w) < Solution.WHEEL_SIZE) {
-                Character letter = getMax(letterCounts[w]);
-                if (!retVal.hasLetter(w, letter)) retVal.addLetter(w, letter);
-                letterCounts[w].remove(letter);
+            for (int r = 0; r < LetterStats.rankCount(w) && retVal.getWheelSize(w) < Solution.WHEEL_SIZE; r++) {
+                retVal.addLetter(w, LetterStats.getRanked(w, r));
             }
         }
         return retVal;
     }
-
-    /**
-     * @param letterCounts a HashMap containing all the letters and the frequency seen at certain position in the words
-     * @return the letter that is the most common in all the words at a certain position
-     *
-     */
-    public Character getMax(Map<Character,Integer> letterCounts){
-        int count = -1;
-        Character letter = null;
-        for(Character l : letterCounts.keySet()){
-            int letterTotal = letterCounts.get(l);
-            if(count < letterTotal){
-                count = letterTotal;
-                letter = l;
-            }
-        }
-//        System.out.print(letter + " ");
-//        System.out.print(count + "\n");
-        return letter;
-    }
 }
@@ -1,5 +1,4 @@
-import java.util.HashMap;
-import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Create an initial lock configuration by selecting the 10 most common letters for
@@ -12,52 +11,32 @@ public class InitOpRaffle extends InitializationOperator{
     /**
      * Create an initial solution
      *
+     * @param rng the random number generator to use
      * @return a lock configuration using the strategy described in the class header
      *
      */
     @Override
-    public Solution run() {
+    public Solution run(SplittableRandom rng) {
         Solution retVal = new Solution();
-        Map<Character,Integer>[] letterCounts = new Map[Dictionary.commonLetters.length];
-        for(int i = 0; i < letterCounts.length; i++) {letterCounts[i] = new HashMap<Character, Integer>(Dictionary.commonLetters[i]);}
 
         for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
             while (retVal.getWheelSize(w) < Solution.WHEEL_SIZE) {
-                Character letter = getRaffle(letterCounts[w]);
-                if (!retVal.hasLetter(w, letter)) retVal.addLetter(w, letter);
-                letterCounts[w].remove(letter);
+                char letter = getRaffle(w, retVal.getMask(w), rng);
+                if (letter == '?') break; // Fewer letters are used at this position than fit on a wheel
+                retVal.addLetter(w, letter);
             }
         }
         return retVal;
     }
 
     /**
-     * @param letterCounts a HashMap containing all the letters and the frequency seen at certain position in the words
-     * @return the letter that won in a raffle contest
+     * @param wheel the position in the words
+     * @param taken a mask of the letters that have already won, as in Solution.getMask
+     * @param rng the random number generator to use
+     * @return the letter that won in a raffle contest, or '?' if every letter has already won
      *
      */
-    public Character getRaffle(Map<Character,Integer> letterCounts){
-        int count = -1;
-        for(Character l : letterCounts.keySet()){
-            int letterTotal = letterCounts.get(l);
-            if(count < letterTotal){
-                count = letterTotal;
-            }
-        }
-
-        int raffleTicket = Optimizer.prng.nextInt(count);
-        Character letter = null;
-
-        while(letter == null){
-            int position = Optimizer.prng.nextInt(Solution.alphabet.length());
-            Character participant = Solution.alphabet.charAt(position);
-            if(letterCounts.containsKey(participant)) {
-                int tickets = letterCounts.get(participant);
-                if (tickets >= raffleTicket) {
-                    letter = participant;
-                }
-            }
-        }
-        return letter;
+    public char getRaffle(int wheel, int taken, SplittableRandom rng){
+        return LetterStats.raffle(wheel, taken, rng);
     }
 }
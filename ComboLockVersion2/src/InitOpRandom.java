@@ -1,3 +1,5 @@
+import java.util.SplittableRandom;
+
 /**
  * Create an initial lock configuration by choosing random letters
  * 
@@ -5,17 +7,16 @@
 public class InitOpRandom extends InitializationOperator {
 	
 	/**
+	 * @param rng the random number generator to use
 	 * @return a lock configuration with random letters chosen for each wheel
 	 */
 	@Override
-	public Solution run() {
+	public Solution run(SplittableRandom rng) {
 		Solution retVal = new Solution();
 		
 		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
 			while (retVal.getWheelSize(w) < Solution.WHEEL_SIZE) {
-				int letterNdx = Optimizer.prng.nextInt(27);
-				char letter = Solution.alphabet.charAt(letterNdx);
-				if (!retVal.hasLetter(w, letter)) retVal.addLetter(w, letter);
+				retVal.addLetter(w, retVal.getRandomMissingLetter(w, rng));
 			}
 		}
 		return retVal;
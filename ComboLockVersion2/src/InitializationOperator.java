@@ -1,9 +1,11 @@
+import java.util.SplittableRandom;
+
 /** 
  * A base class for an operator that creates a lock configuration
  * for the initial population of the GA
  */
 public abstract class InitializationOperator {
-	public abstract Solution run();
+	public abstract Solution run(SplittableRandom rng);
 
 	public String getName() {
 		return getClass().getSimpleName();
@@ -0,0 +1,135 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An island model GA: several independent populations, each evolving on its own thread with its own
+ * initialization weights and mutation budgets.  Every few generations each island sends copies of its best
+ * solutions to another island, chosen in a ring or at random.  Migrants are left in the target island's
+ * inbox with a compare-and-set, and the target picks them up at the end of its next generation, so islands
+ * never wait for one another.
+ */
+public class IslandModel {
+	public enum Topology {RING, RANDOM} // How the island that receives migrants is chosen
+	
+	private final Population[] islands;
+	private final AtomicReferenceArray<Solution[]> inboxes; // inboxes.get(i) holds the migrants waiting for island i,
+															// or null
+	private final AtomicReference<Solution> globalBest = new AtomicReference<>(); // The best solution found on any island
+	private final long[] seeds; // The seed of each island
+	
+	/**
+	 * Seed the populations of the islands
+	 * @param agents an array of initialization agents that generate initial solutions
+	 * @param weights weights[i % weights.length] are the weights of the agents on island i, as described in Population
+	 * @param targetSize the size of the population on each island
+	 * @param islandCount the number of islands
+	 * @param seed the seed that the random numbers used by the islands are derived from
+	 */
+	IslandModel(InitializationOperator[] agents, double[][] weights, int targetSize, int islandCount, long seed) {
+		if (islandCount < 2) {
+			throw new IllegalArgumentException("The island model needs at least two islands.");
+		}
+		islands = new Population[islandCount];
+		inboxes = new AtomicReferenceArray<>(islandCount);
+		seeds = new long[islandCount];
+		RandomStreams streams = new RandomStreams(seed);
+		for (int i = 0; i < islandCount; i++) {
+			seeds[i] = streams.forIsland(i).nextLong();
+			islands[i] = new Population(agents, weights[i % weights.length], targetSize, seeds[i]);
+			islands[i].setName("Island " + i);
+			publish(i, islands[i].getBest());
+		}
+	}
+	
+	/**
+	 * Run the islands, each on its own thread, and wait for them to finish
+	 * @param mutationOperators an array of mutation operators to apply to the children
+	 * @param maxMutations maxMutations[i % maxMutations.length] are the mutation budgets of island i, as described in
+	 *                     Population.runGeneration
+	 * @param generations the number of generations to run on each island
+	 * @param interval the number of generations between migrations
+	 * @param migrants the number of solutions each island sends when it migrates
+	 * @param topology how the island that receives the migrants is chosen
+	 */
+	public void run(MutationOperator[] mutationOperators, int[][] maxMutations, int generations, int interval,
+			int migrants, Topology topology) {
+		Thread[] threads = new Thread[islands.length];
+		for (int i = 0; i < islands.length; i++) {
+			int island = i;
+			threads[i] = new Thread(() -> runIsland(island, mutationOperators, maxMutations[island % maxMutations.length],
+					generations, interval, migrants, topology), "Island " + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for the islands");
+			}
+		}
+	}
+	
+	/**
+	 * The body of the thread of an island
+	 */
+	private void runIsland(int island, MutationOperator[] mutationOperators, int[] maxMutations, int generations,
+			int interval, int migrants, Topology topology) {
+		Population population = islands[island];
+		SplittableRandom rng = new RandomStreams(seeds[island]).forMigration();
+		for (int g = 0; g < generations; g++) {
+			population.runGeneration(mutationOperators, maxMutations);
+			Solution[] arrived = inboxes.getAndSet(island, null);
+			if (arrived != null) {
+				population.immigrate(arrived);
+			}
+			publish(island, population.getBest());
+			if ((g + 1) % interval == 0) {
+				int target = island;
+				if (topology == Topology.RING) {
+					target = (island + 1) % islands.length;
+				}
+				else {
+					while (target == island) target = rng.nextInt(islands.length);
+				}
+				send(target, population.getElite(migrants));
+			}
+		}
+	}
+	
+	/**
+	 * Add migrants to the inbox of an island, without locking
+	 * @param target the island
+	 * @param migrants copies of the solutions to send
+	 */
+	private void send(int target, Solution[] migrants) {
+		inboxes.accumulateAndGet(target, migrants, (waiting, sent) -> {
+			if (waiting == null) return sent;
+			Solution[] all = new Solution[waiting.length + sent.length];
+			System.arraycopy(waiting, 0, all, 0, waiting.length);
+			System.arraycopy(sent, 0, all, waiting.length, sent.length);
+			return all;
+		});
+	}
+	
+	/**
+	 * Replace the global best solution if an island has found a better one
+	 * @param island the island
+	 * @param best the best solution on the island
+	 */
+	private void publish(int island, Solution best) {
+		Solution previous = globalBest.getAndAccumulate(best,
+				(current, candidate) -> current == null || candidate.getScore() > current.getScore() ? candidate : current);
+		if (previous != null && best.getScore() > previous.getScore()) {
+			System.out.println("GLOBAL BEST Island " + island + ": " + best.getScore() + " " + best.toString());
+		}
+	}
+	
+	/**
+	 * @return the best solution found so far on any island; safe to call while the islands are running
+	 */
+	public Solution getBest() {
+		return globalBest.get();
+	}
+}
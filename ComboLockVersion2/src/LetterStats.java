@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Statistics of the letters at each position of the words in the dictionary, kept in primitive arrays so that
+ * the operators that favour common letters do not need to copy or search maps.
+ * The letters at each position are ranked from the most to the least common, ties going to the first letter in
+ * the alphabet.  Letters that are not used at a position are not ranked.
+ */
+public class LetterStats {
+	private static final int[][] counts = Dictionary.letterCounts; // counts[w][l] is the number of words with letter
+																	// index l at position w
+	private static final byte[][] ranked = new byte[Solution.WHEEL_COUNT][]; // ranked[w][r] is the letter index of
+																			  // rank r at position w
+	
+	static {
+		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+			byte[] order = new byte[Solution.ALPHABET_SIZE];
+			int n = 0;
+			for (int l = 0; l < Solution.ALPHABET_SIZE; l++) {
+				if (counts[w][l] == 0) continue;
+				// Insertion sort, which keeps letters with the same count in alphabetical order
+				int r = n++;
+				while (r > 0 && counts[w][order[r - 1]] < counts[w][l]) {
+					order[r] = order[r - 1];
+					r--;
+				}
+				order[r] = (byte) l;
+			}
+			ranked[w] = Arrays.copyOf(order, n);
+		}
+	}
+	
+	/**
+	 * @param wheel the position in the words
+	 * @param letter the letter
+	 * @return the number of words in the dictionary with the letter at the position
+	 */
+	static int count(int wheel, char letter) {
+		int l = Solution.letterIndex(letter);
+		return l < 0 ? 0 : counts[wheel][l];
+	}
+	
+	/**
+	 * @param wheel the position in the words
+	 * @return the number of different letters that are used at the position
+	 */
+	static int rankCount(int wheel) {
+		return ranked[wheel].length;
+	}
+	
+	/**
+	 * @param wheel the position in the words
+	 * @param rank the rank in range [0..rankCount(wheel))
+	 * @return the letter of that rank, with rank 0 being the most common letter at the position
+	 */
+	static char getRanked(int wheel, int rank) {
+		return Solution.alphabet.charAt(ranked[wheel][rank]);
+	}
+	
+	/**
+	 * Find the most common letter at a position that has not been taken
+	 * @param wheel the position in the words
+	 * @param taken a mask in which bit l is set iff the letter with index l has been taken
+	 * @return the letter, or '?' if every letter that is used at the position has been taken
+	 */
+	static char mostCommon(int wheel, int taken) {
+		for (byte l : ranked[wheel]) {
+			if ((taken & (1 << l)) == 0) return Solution.alphabet.charAt(l);
+		}
+		return '?';
+	}
+	
+	/**
+	 * @param wheel the position in the words
+	 * @param taken a mask in which bit l is set iff the letter with index l has been taken
+	 * @return the number of words in the dictionary whose letter at the position has not been taken
+	 */
+	static int countUntaken(int wheel, int taken) {
+		int count = 0;
+		for (byte l : ranked[wheel]) {
+			if ((taken & (1 << l)) == 0) count += counts[wheel][l];
+		}
+		return count;
+	}
+	
+	/**
+	 * Select a letter at a position that has not been taken, in proportion to the number of words that have it there
+	 * @param wheel the position in the words
+	 * @param taken a mask in which bit l is set iff the letter with index l has been taken
+	 * @param ticket a number in range [0..countUntaken(wheel, taken)), chosen uniformly at random
+	 * @return the letter of the ticket-th word in a list of the words whose letter at the position has not been
+	 *         taken, grouped by that letter
+	 */
+	static char selectUntaken(int wheel, int taken, int ticket) {
+		for (int l = 0; ; l++) {
+			if ((taken & (1 << l)) != 0) continue;
+			if (ticket < counts[wheel][l]) return Solution.alphabet.charAt(l);
+			ticket -= counts[wheel][l];
+		}
+	}
+	
+	/**
+	 * Choose a letter at a position that has not been taken by a raffle.  A ticket is drawn at random below the
+	 * count of the most common letter that has not been taken, and the winner is chosen at random from the letters
+	 * that have not been taken and have at least that count, so common letters win more often.  Since the letters
+	 * are ranked by count, the letters that may win come first in the ranking and no draws are wasted.
+	 * @param wheel the position in the words
+	 * @param taken a mask in which bit l is set iff the letter with index l has been taken
+	 * @param rng the random number generator to use
+	 * @return the letter, or '?' if every letter that is used at the position has been taken
+	 */
+	static char raffle(int wheel, int taken, SplittableRandom rng) {
+		byte[] order = ranked[wheel];
+		int first = 0;
+		while (first < order.length && (taken & (1 << order[first])) != 0) first++;
+		if (first == order.length) return '?';
+		int ticket = rng.nextInt(counts[wheel][order[first]]);
+		int eligible = 0;
+		for (int r = first; r < order.length && counts[wheel][order[r]] >= ticket; r++) {
+			if ((taken & (1 << order[r])) == 0) eligible++;
+		}
+		int winner = rng.nextInt(eligible);
+		for (int r = first; ; r++) {
+			if ((taken & (1 << order[r])) == 0 && winner-- == 0) return Solution.alphabet.charAt(order[r]);
+		}
+	}
+}
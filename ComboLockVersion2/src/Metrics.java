@@ -0,0 +1,133 @@
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of counters and latency histograms for the hot paths of the optimizer.
+ * Metrics are looked up by name once, kept in static fields, and only updated when Optimizer.COLLECT_METRICS is
+ * set, so that they cost a field read when they are off.  They can be updated from several threads at once.
+ * Values that are already counted elsewhere, such as the hits of the caches, are registered as gauges.
+ * 
+ * Flight Recorder events (GenerationEvent, EvaluationEvent and MutationEvent) are emitted whether or not the
+ * metrics are collected, whenever a recording that enables them is running.
+ */
+public class Metrics {
+	private static final Map<String, Object> registry = new ConcurrentSkipListMap<>(); // The metrics, by name
+	
+	/**
+	 * @param name the name of the counter
+	 * @return the counter with that name, which is created if it does not exist
+	 */
+	static Counter counter(String name) {
+		return (Counter) registry.computeIfAbsent(name, key -> new Counter());
+	}
+	
+	/**
+	 * @param name the name of the histogram
+	 * @return the histogram with that name, which is created if it does not exist
+	 */
+	static Histogram histogram(String name) {
+		return (Histogram) registry.computeIfAbsent(name, key -> new Histogram());
+	}
+	
+	/**
+	 * Register a value that is counted elsewhere
+	 * @param name the name of the gauge
+	 * @param value reads the value
+	 */
+	static void gauge(String name, LongSupplier value) {
+		registry.put(name, value);
+	}
+	
+	/**
+	 * Print every metric, in order of name
+	 * @param out the stream to print to
+	 */
+	static void print(PrintStream out) {
+		for (Map.Entry<String, Object> metric : registry.entrySet()) {
+			Object value = metric.getValue();
+			if (value instanceof Counter) {
+				out.println(metric.getKey() + ": " + ((Counter) value).get());
+			}
+			else if (value instanceof Histogram) {
+				out.println(metric.getKey() + ": " + value);
+			}
+			else {
+				out.println(metric.getKey() + ": " + ((LongSupplier) value).getAsLong());
+			}
+		}
+	}
+	
+	/**
+	 * A count of events
+	 */
+	static class Counter {
+		private final LongAdder count = new LongAdder();
+		
+		void increment() {
+			count.increment();
+		}
+		
+		void add(long n) {
+			count.add(n);
+		}
+		
+		long get() {
+			return count.sum();
+		}
+	}
+	
+	/**
+	 * A histogram of durations, with a bucket for each power of two nanoseconds
+	 */
+	static class Histogram {
+		private final LongAdder[] buckets = new LongAdder[64]; // buckets[b] counts the durations d with
+															   // 2^(b-1) <= d < 2^b nanoseconds, or d = 0 for b = 0
+		private final LongAdder total = new LongAdder(); // The sum of the durations, in nanoseconds
+		
+		Histogram() {
+			for (int b = 0; b < buckets.length; b++) buckets[b] = new LongAdder();
+		}
+		
+		/**
+		 * @param nanos a duration in nanoseconds
+		 */
+		void record(long nanos) {
+			buckets[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+			total.add(nanos);
+		}
+		
+		/**
+		 * @return the number of durations recorded
+		 */
+		long count() {
+			long count = 0;
+			for (LongAdder bucket : buckets) count += bucket.sum();
+			return count;
+		}
+		
+		/**
+		 * @param fraction the fraction of the durations, in range (0..1]
+		 * @return a bound, within a factor of two, that the fraction of the durations are below, in nanoseconds
+		 */
+		long quantile(double fraction) {
+			long rank = (long) Math.ceil(fraction * count());
+			long seen = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				seen += buckets[b].sum();
+				if (seen >= rank) return 1L << b;
+			}
+			return Long.MAX_VALUE;
+		}
+		
+		@Override
+		public String toString() {
+			long count = count();
+			if (count == 0) return "0";
+			return String.format("%d, mean %.1f us, p50 < %.1f us, p90 < %.1f us, p99 < %.1f us", count,
+					total.sum() / 1e3 / count, quantile(0.5) / 1e3, quantile(0.9) / 1e3, quantile(0.99) / 1e3);
+		}
+	}
+}
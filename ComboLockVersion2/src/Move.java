@@ -0,0 +1,18 @@
+/**
+ * A small change to a lock configuration, proposed by a mutation operator.  A move can be applied to a
+ * solution in place and then undone, so that the greedy mutation process can try many moves on one
+ * working solution instead of building a new solution for each.
+ */
+public abstract class Move {
+	/**
+	 * Change a solution in place; its fitness will be calculated again
+	 * @param solution the solution, which has the layout the move was proposed for
+	 */
+	abstract void apply(Solution solution);
+	
+	/**
+	 * Restore a solution the move has just been applied to
+	 * @param solution the solution
+	 */
+	abstract void undo(Solution solution);
+}
@@ -1,5 +1,4 @@
-import java.util.HashMap;
-import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
@@ -12,22 +11,22 @@ public class MutateChooseCommonLetterV2 extends MutationOperator{
     static int MAX_TRIES = 1000;
 
     /**
-     * Create a new lock configuration
+     * Propose a change to a lock configuration
      * @param input the existing configuration
-     * @return a new configuration with one letter changed
+     * @param rng the random number generator to use
+     * @return a move that changes one letter so that more words can be made, or null if no letter was found
      */
     @Override
-    public Solution run(Solution input) {
-        Solution solution = new Solution();
-        Map<Character,Integer>[] letterCounts = new Map[Dictionary.commonLetters.length];
-        for(int i = 0; i < letterCounts.length; i++) {letterCounts[i] = new HashMap<Character, Integer>(Dictionary.commonLetters[i]);}
+    public Move propose(Solution input, SplittableRandom rng) {
+        Move move = null;
+        int[] nextRank = new int[Solution.WHEEL_COUNT]; //rank of the next common letter to try on each wheel
         boolean ok = false;
         int tries2 = 0;
         while(!ok){
             tries2++;
             if (tries2 > MAX_TRIES) {
                 System.err.println("Giving up trying to find new letter");
-                return solution;
+                return null;
             }
             char letter = '?';
             int tries = 0;
@@ -36,63 +35,22 @@ public class MutateChooseCommonLetterV2 extends MutationOperator{
                 tries++;
                 if (tries > MAX_TRIES) {
                     System.err.println("Giving up trying to find new letter");
-                    return solution;
+                    return null;
                 }
 
-                wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-                letter = getMax(letterCounts[wheel]);
+                wheel = rng.nextInt(Solution.WHEEL_COUNT);
+                if (nextRank[wheel] == LetterStats.rankCount(wheel)) continue; //every letter is on the wheel already
+                letter = LetterStats.getRanked(wheel, nextRank[wheel]++);
                 ok = !input.hasLetter(wheel, letter);
-                letterCounts[wheel].remove(letter);
             }
-            char oldLetter = '?';
-            ok = false;
-            tries = 0;
-            while (!ok) {
-                tries++;
-                if (tries > MAX_TRIES) {
-                    System.err.println("Giving up trying to find old letter");
-                    return solution;
-                }
-                oldLetter = Solution.alphabet.charAt(Optimizer.prng.nextInt(27));
-                ok = input.hasLetter(wheel, oldLetter);
-            }
-            for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-                for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-                    char currentLtr = input.getWheel(w).charAt(i);
-                    if (w == wheel && currentLtr == oldLetter) {
-                        solution.addLetter(w, oldLetter);
-                    }
-                    else {
-                        solution.addLetter(w, currentLtr);
-                    }
-                }
-            }
-            solution.getScore();
-            input.getScore();
-            ok = solution.words.size() > input.words.size();
+            char oldLetter = input.getRandomLetter(wheel, rng);
+            move = new ReplaceMove(wheel, input.getPosition(wheel, oldLetter), letter);
+            int[] masks = input.masks.clone();
+            masks[wheel] = (masks[wheel] & ~(1 << Solution.letterIndex(oldLetter))) | (1 << Solution.letterIndex(letter));
+            ok = Dictionary.count(WordSetCache.makeable(masks)) > input.getWordCount();
         }
 
-        return solution;
-    }
-
-    /**
-     * @param letterCounts a HashMap containing all the letters and the frequency seen at certain position in the words
-     * @return the letter that is the most common in all the words at a certain position
-     *
-     */
-    public Character getMax(Map<Character,Integer> letterCounts){
-        int count = -1;
-        Character letter = null;
-        for(Character l : letterCounts.keySet()){
-            int letterTotal = letterCounts.get(l);
-            if(count < letterTotal){
-                count = letterTotal;
-                letter = l;
-            }
-        }
-//        System.out.print(letter + " ");
-//        System.out.print(count + "\n");
-        return letter;
+        return move;
     }
 
 }
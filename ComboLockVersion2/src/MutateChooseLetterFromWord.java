@@ -1,3 +1,5 @@
+import java.util.SplittableRandom;
+
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
  * ensures that that letter is present in the lock.  
@@ -6,56 +8,30 @@
  *
  */
 public class MutateChooseLetterFromWord extends MutationOperator{
-	static int MAX_TRIES = 1000;
 
 	/**
-	 * Create a new lock configuration 
+	 * Propose a change to a lock configuration.  The new letter is drawn as if a random position of a random word
+	 * were chosen until its letter was not on the wheel, without the retries.
 	 * @param input the existing configuration
-	 * @return a new configuration with one letter changed
+	 * @param rng the random number generator to use
+	 * @return a move that changes one letter, or null if every word in the dictionary can be made
 	 */
 	@Override
-	public Solution run(Solution input) {
-		Solution solution = new Solution();
-		char letter = '?';
-		int wheel = -1;
-		boolean ok = false;
-		int tries = 0;
-		while (!ok) {
-			tries++;
-			if (tries > MAX_TRIES) {
-				System.err.println("Giving up trying to find new letter");
-				return solution;
-			}
-			
-			String word = Dictionary.getRandomWord();
-			wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-			letter = word.charAt(wheel);
-			ok = !input.hasLetter(wheel, letter);
-		}
-		char oldLetter = '?';
-		ok = false;
-		tries = 0;
-		while (!ok) {
-			tries++;
-			if (tries > MAX_TRIES) {
-				System.err.println("Giving up trying to find old letter");
-				return solution;
-			}
-			oldLetter = Solution.alphabet.charAt(Optimizer.prng.nextInt(27));
-			ok = input.hasLetter(wheel, oldLetter);
-		}
+	public Move propose(Solution input, SplittableRandom rng) {
+		// The chance of ending at a wheel is proportional to the number of words whose letter for it is missing
+		int[] missingWords = new int[Solution.WHEEL_COUNT];
+		int total = 0;
 		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-			for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-				char currentLtr = input.getWheel(w).charAt(i);
-				if (w == wheel && currentLtr == oldLetter) {
-					solution.addLetter(w, letter);
-				}
-				else {
-					solution.addLetter(w, currentLtr);
-				}
-			}
+			missingWords[w] = LetterStats.countUntaken(w, input.getMask(w));
+			total += missingWords[w];
 		}
-		return solution;
+		if (total == 0) return null;
+		int ticket = rng.nextInt(total);
+		int wheel = 0;
+		while (ticket >= missingWords[wheel]) ticket -= missingWords[wheel++];
+		char letter = LetterStats.selectUntaken(wheel, input.getMask(wheel), ticket);
+		char oldLetter = input.getRandomLetter(wheel, rng);
+		return new ReplaceMove(wheel, input.getPosition(wheel, oldLetter), letter);
 	}
 
 }
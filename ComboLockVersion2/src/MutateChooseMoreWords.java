@@ -1,6 +1,4 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
@@ -10,65 +8,41 @@ import java.util.Map;
  *
  */
 public class MutateChooseMoreWords extends MutationOperator{
-    static int MAX_TRIES = 1000;
-    static int MAX_TRIES2 = 5;
 
     /**
-     * Create a new lock configuration
+     * Propose a change to a lock configuration.  The pairs of a wheel and a letter that is not on it are tried
+     * in a random order, each replacing the letter that makes the fewest words on that wheel, until one makes more
+     * words; so every pair that makes more words is equally likely to be chosen.
      * @param input the existing configuration
-     * @return a new configuration with one letter changed
+     * @param rng the random number generator to use
+     * @return a move that changes one letter so that more words can be made, or null if no letter does
      */
     @Override
-    public Solution run(Solution input) {
-        if(Optimizer.sleep > 0){
-            //System.out.println(Optimizer.sleep); //delete
-            Optimizer.sleep--;
-            return new Solution();
-        }
-        Solution solution = null;
-        boolean ok = false;
-        int tries2 = 0;
-        while(!ok){
-            solution = new Solution();
-            tries2++;
-            if (tries2 > MAX_TRIES2) {
-                Optimizer.sleep = 100;
-                System.err.println("Giving up trying to find new letter 1");
-                return solution;
-            }
-
-            char letter = '?';
-            int wheel = -1;
-            int tries = 0;
-            while (!ok) {
-                tries++;
-                if (tries > MAX_TRIES) {
-                    System.err.println("Giving up trying to find new letter 2");
-                    return solution;
-                }
-
-                wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-                letter = Solution.alphabet.charAt(Optimizer.prng.nextInt(27));
-                ok = !input.hasLetter(wheel, letter);
-            }
+    public Move propose(Solution input, SplittableRandom rng) {
+        int missing = 0;
+        for (int w = 0; w < Solution.WHEEL_COUNT; w++) missing += input.getMissingCount(w);
+        int[] tickets = new int[missing]; //each ticket is a wheel and a letter that is not on it
+        for (int t = 0; t < missing; t++) tickets[t] = t;
+        for (int left = missing; left > 0; left--) {
+            //draw the next pair without replacement
+            int k = rng.nextInt(left);
+            int ticket = tickets[k];
+            tickets[k] = tickets[left - 1];
+            int wheel = 0;
+            while (ticket >= input.getMissingCount(wheel)) ticket -= input.getMissingCount(wheel++);
+            char letter = input.getMissingLetter(wheel, ticket);
             char oldLetter = getMinLetter(input, wheel);
-            for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-                for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-                    char currentLtr = input.getWheel(w).charAt(i);
-                    if (w == wheel && currentLtr == oldLetter) {
-                        solution.addLetter(w, letter);
-                    }
-                    else {
-                        solution.addLetter(w, currentLtr);
-                    }
+            int position = input.getPosition(wheel, oldLetter);
+            if (position >= 0) {
+                // Count the words on the changed lock without scoring it
+                int[] masks = input.masks.clone();
+                masks[wheel] = (masks[wheel] & ~(1 << Solution.letterIndex(oldLetter))) | (1 << Solution.letterIndex(letter));
+                if (Dictionary.count(WordSetCache.makeable(masks)) > input.getWordCount()) {
+                    return new ReplaceMove(wheel, position, letter);
                 }
             }
-            solution.getScore();
-            input.getScore();
-            ok = solution.words.size() > input.words.size();
         }
-
-        return solution;
+        return null;
     }
 
     /**
@@ -79,23 +53,7 @@ public class MutateChooseMoreWords extends MutationOperator{
      *
      */
     public char getMinLetter(Solution input, int wheel){
-        ArrayList<String> words = Dictionary.score(input);
-        HashMap<Character, Integer> letterCounts = new HashMap<>();
-        for(String w : words){
-            char wordLetter = w.charAt(wheel);
-            letterCounts.put(wordLetter, letterCounts.getOrDefault(wordLetter, 0) + 1);
-        }
-
-        int count = Integer.MAX_VALUE;
-        char letter = '?';
-        for(Character l : letterCounts.keySet()){
-            int letterTotal = letterCounts.getOrDefault(l, 0);
-            if(count > letterTotal){
-                count = letterTotal;
-                letter = l;
-            }
-        }
-        return letter;
+        return input.getMinLetter(wheel);
     }
 
 }
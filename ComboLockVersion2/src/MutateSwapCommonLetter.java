@@ -1,5 +1,5 @@
 import java.util.Arrays;
-import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
@@ -10,17 +10,15 @@ import java.util.Map;
  */
 public class MutateSwapCommonLetter extends MutationOperator{
     static int MAX_TRIES = 1000;
-    boolean[] isCommon; //keep track of what letters are common in a wheel
 
     /**
-     * Create a new lock configuration
+     * Propose a change to a lock configuration
      * @param input the existing configuration
-     * @return a new configuration with one letter changed
+     * @param rng the random number generator to use
+     * @return a move that swaps two letters on a wheel, or null if no letters were found
      */
     @Override
-    public Solution run(Solution input) {
-        Solution solution = new Solution();
-        char letter = '?';
+    public Move propose(Solution input, SplittableRandom rng) {
         boolean ok = false;
         int wheel = -1;
         int pos1 = -1;
@@ -31,12 +29,12 @@ public class MutateSwapCommonLetter extends MutationOperator{
             tries++;
             if (tries > MAX_TRIES) {
                 System.err.println("Giving up trying to swap letters");
-                return solution;
+                return null;
             }
 
-            wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-            orderLetters(input.getWheel(wheel), wheel);
-            int pos = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
+            wheel = rng.nextInt(Solution.WHEEL_COUNT);
+            boolean[] isCommon = orderLetters(input.getWheel(wheel), wheel); //keep track of what letters are common in a wheel
+            int pos = rng.nextInt(Solution.WHEEL_SIZE);
             boolean posCommon = isCommon[pos];
             pos1 = (pos + 1) % Solution.WHEEL_SIZE;
             boolean pos1Common = isCommon[pos1];
@@ -50,22 +48,7 @@ public class MutateSwapCommonLetter extends MutationOperator{
                 ok = pos != pos2;
             }
         }
-        for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-            String sourceWheel = input.getWheel(w);
-
-            for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-                if (w == wheel && i == pos1) {
-                    solution.addLetter(w, sourceWheel.charAt(pos2));
-                }
-                else if (w == wheel && i == pos2) {
-                    solution.addLetter(w, sourceWheel.charAt(pos1));
-                }
-                else {
-                    solution.addLetter(w, sourceWheel.charAt(i));
-                }
-            }
-        }
-        return solution;
+        return new SwapMove(wheel, pos1, pos2);
     }
 
     /**
@@ -73,18 +56,19 @@ public class MutateSwapCommonLetter extends MutationOperator{
      * array to keep track of which letters are common in a wheel
      * @param sourceWheel letters on a certain wheel of the lock
      * @param wheel the number of the specific wheel of a the lock
+     * @return an array in which element i is true iff the letter at position i is common
      *
      */
-    public void orderLetters(String sourceWheel, int wheel){
+    public boolean[] orderLetters(String sourceWheel, int wheel){
         int [] letterOrder = new int[sourceWheel.length()];
-        isCommon = new boolean[sourceWheel.length()];
+        boolean[] isCommon = new boolean[sourceWheel.length()];
         for(int i = 0; i < sourceWheel.length(); i++){
-            int letterCount = Dictionary.commonLetters[wheel].getOrDefault(sourceWheel.charAt(i), 0);
+            int letterCount = LetterStats.count(wheel, sourceWheel.charAt(i));
             letterOrder[i] = letterCount;
         }
         Arrays.sort(letterOrder);
         for(int l = 0; l < sourceWheel.length(); l++){
-            int letterCount = Dictionary.commonLetters[wheel].getOrDefault(sourceWheel.charAt(l), 0);
+            int letterCount = LetterStats.count(wheel, sourceWheel.charAt(l));
 
             for(int n = 0; n < letterOrder.length; n++){
                 if(letterOrder[n] == letterCount){
@@ -94,5 +78,6 @@ public class MutateSwapCommonLetter extends MutationOperator{
                 }
             }
         }
+        return isCommon;
     }
 }
@@ -1,3 +1,5 @@
+import java.util.SplittableRandom;
+
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
  * ensures that that letter is present in the lock.  
@@ -6,39 +8,22 @@
  *
  */
 public class MutateSwapLetterPositions extends MutationOperator{
-	static int MAX_TRIES = 1000;
 
 	/**
-	 * Create a new lock configuration 
+	 * Propose a change to a lock configuration
 	 * @param input the existing configuration
-	 * @return a new configuration with one letter changed
+	 * @param rng the random number generator to use
+	 * @return a move that swaps two letters on a wheel
 	 */
 	@Override
-	public Solution run(Solution input) {
-		Solution solution = new Solution();
-		char letter = '?';
-		int wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-		int pos1 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
-		int pos2 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
+	public Move propose(Solution input, SplittableRandom rng) {
+		int wheel = rng.nextInt(Solution.WHEEL_COUNT);
+		int pos1 = rng.nextInt(Solution.WHEEL_SIZE);
+		int pos2 = rng.nextInt(Solution.WHEEL_SIZE);
 		while(pos2 == pos1) {
-			pos2 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
-		}
-		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-			String sourceWheel = input.getWheel(w);
-			
-			for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-				if (w == wheel && i == pos1) {
-					solution.addLetter(w, sourceWheel.charAt(pos2));					
-				}
-				else if (w == wheel && i == pos2) {
-					solution.addLetter(w, sourceWheel.charAt(pos1));					
-				}
-				else {
-					solution.addLetter(w, sourceWheel.charAt(i));					
-				}
-			}
+			pos2 = rng.nextInt(Solution.WHEEL_SIZE);
 		}
-		return solution;
+		return new SwapMove(wheel, pos1, pos2);
 	}
 
 }
@@ -1,3 +1,5 @@
+import java.util.SplittableRandom;
+
 /**
  * Local search heuristic that chooses a random letter from a random word in the dictionary, and
  * ensures that that letter is present in the lock.
@@ -6,40 +8,25 @@
  *
  */
 public class MutateSwapOftenSwitched extends MutationOperator{
-    static int MAX_TRIES = 1000;
 
     /**
-     * Create a new lock configuration
+     * Propose a change to a lock configuration
      * @param input the existing configuration
-     * @return a new configuration with one letter changed
+     * @param rng the random number generator to use
+     * @return a move that swaps two letters on a wheel, or null if no letter is switched with the chosen one
      */
     @Override
-    public Solution run(Solution input) {
-        Solution solution = new Solution();
-        int wheel = Optimizer.prng.nextInt(Solution.WHEEL_COUNT);
-        int pos = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
-        char maxLetter = input.getMaxLetter(input.getWheel(wheel).charAt(pos),wheel);
-        int pos1 = input.getWheel(wheel).indexOf(maxLetter);
-        int pos2 = (Optimizer.prng.nextInt(Solution.WHEEL_SIZE / 2) + 3 + pos) % Solution.WHEEL_SIZE;
-//        while(pos2 == pos1) {
-//            pos2 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE);
-//        }
-        for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-            String sourceWheel = input.getWheel(w);
-
-            for (int i = 0; i < Solution.WHEEL_SIZE; i++) {
-                if (w == wheel && i == pos1) {
-                    solution.addLetter(w, sourceWheel.charAt(pos2));
-                }
-                else if (w == wheel && i == pos2) {
-                    solution.addLetter(w, sourceWheel.charAt(pos1));
-                }
-                else {
-                    solution.addLetter(w, sourceWheel.charAt(i));
-                }
-            }
+    public Move propose(Solution input, SplittableRandom rng) {
+        int wheel = rng.nextInt(Solution.WHEEL_COUNT);
+        int pos = rng.nextInt(Solution.WHEEL_SIZE);
+        char maxLetter = input.getMaxLetter(input.getLetter(wheel, pos),wheel);
+        int pos1 = input.getPosition(wheel, maxLetter);
+        int pos2 = (rng.nextInt(Solution.WHEEL_SIZE / 2) + 3 + pos) % Solution.WHEEL_SIZE;
+        if (pos1 < 0) {
+            // No word on this wheel is ever switched with the chosen letter
+            return null;
         }
-        return solution;
+        return new SwapMove(wheel, pos1, pos2);
     }
 
 }
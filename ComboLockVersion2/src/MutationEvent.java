@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for a mutation of a child, from the proposal of the move to its evaluation
+ */
+@Name("combolock.Mutation")
+@Label("Mutation")
+@Category("Combination Lock")
+@Description("A mutation operator was applied to a child")
+class MutationEvent extends Event {
+	@Label("Operator")
+	String operator;
+	
+	@Label("Accepted")
+	@Description("Whether the mutation improved the child and was kept")
+	boolean accepted;
+	
+	@Label("Duplicate")
+	@Description("Whether the mutated configuration had been evaluated before")
+	boolean duplicate;
+	
+	@Label("Gain")
+	double gain;
+}
@@ -1,10 +1,33 @@
+import java.util.SplittableRandom;
+
 /**
  * A base class for an operator that induces a mutation in a
  * child solution.
  */
 public abstract class MutationOperator {
-	public abstract Solution run(Solution input);
-
+	/**
+	 * Propose a mutation of a lock configuration
+	 * @param input the existing configuration, which is not changed
+	 * @param rng the random number generator to use
+	 * @return the move, or null if the operator gave up
+	 */
+	public abstract Move propose(Solution input, SplittableRandom rng);
+	
+	/**
+	 * Create a new lock configuration by applying a proposed move to a copy of the input
+	 * @param input the existing configuration
+	 * @param rng the random number generator to use
+	 * @return the new configuration, or an empty configuration if the operator gave up
+	 */
+	public Solution run(Solution input, SplittableRandom rng) {
+		Move move = propose(input, rng);
+		if (move == null) return new Solution();
+		Solution solution = input.copy();
+		move.apply(solution);
+		solution.basis = input;
+		return solution;
+	}
+	
 	public String getName() {
 		return getClass().getSimpleName();
 	}
@@ -0,0 +1,65 @@
+import java.util.SplittableRandom;
+
+/**
+ * A base class for a policy that spreads the mutations of each child over the mutation operators.
+ * The policy is prepared once per generation, and may learn from the mutations of earlier generations.
+ */
+public abstract class MutationScheduler {
+	/**
+	 * Prepare to schedule the mutations of a generation
+	 * @param previous the schedule of the population's previous generation, or null
+	 * @param maxMutations maxMutations[i] bounds the number of times mutation operator i is run on a child, as in
+	 *        Population.runGeneration
+	 * @return a schedule, which can be used on several threads at once
+	 */
+	public abstract Schedule prepare(Schedule previous, int[] maxMutations);
+	
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+	
+	/**
+	 * Schedules the mutations of the children of one generation
+	 */
+	public interface Schedule {
+		/**
+		 * @return a budget for the mutations of one child, to be used on a single thread
+		 */
+		Budget start();
+	}
+	
+	/**
+	 * The mutations of one child
+	 */
+	public interface Budget {
+		/**
+		 * @param rng the random number generator to use
+		 * @return the index of the operator to run next, or -1 if the budget has been spent
+		 */
+		int next(SplittableRandom rng);
+		
+		/**
+		 * Record the outcome of running an operator
+		 * @param operator the index of the operator
+		 * @param gain the increase in the fitness of the child, which is 0 if the mutation was not kept
+		 * @param nanos the time taken to propose, apply and evaluate the mutation, in nanoseconds
+		 */
+		void record(int operator, double gain, long nanos);
+		
+		/**
+		 * Record that an operator gave up without proposing a mutation
+		 * @param operator the index of the operator
+		 * @param nanos the time taken, in nanoseconds
+		 */
+		void gaveUp(int operator, long nanos);
+		
+		/**
+		 * Stop running an operator, or all of them, on the child
+		 * @param operator the index of the operator, or -1 to stop them all
+		 * @param rng the random number generator to use
+		 * @return the number of mutations the budget had planned for the operator and will no longer give to it,
+		 *         or 0 if the budget does not plan the mutations of each operator
+		 */
+		int stop(int operator, SplittableRandom rng);
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * The closest and next closest word to each word that can be made on a lock, as found by the
+ * neighbour search in Solution.  Words are identified by their dictionary ids, or -1 when a word has
+ * fewer than two neighbours, and distances are stored in bytes.
+ */
+public class NeighbourGraph {
+	private static final byte NONE = -1; // The stored distance of a neighbour that does not exist
+	
+	private final int[] closestWord; // closestWord[i] is the dictionary id of the word closest to word i, or -1
+	private final int[] nextWord; // nextWord[i] is the dictionary id of the next closest word to word i, or -1
+	private final byte[] closestDist; // closestDist[i] is the distance to the closest word, or NONE
+	private final byte[] nextDist; // nextDist[i] is the distance to the next closest word, or NONE
+	
+	/**
+	 * Create an empty graph
+	 * @param size the number of words
+	 */
+	NeighbourGraph(int size) {
+		closestWord = new int[size];
+		nextWord = new int[size];
+		closestDist = new byte[size];
+		nextDist = new byte[size];
+	}
+	
+	/**
+	 * Record the neighbours of a word
+	 * @param i the index of the word
+	 * @param cWord the dictionary id of the closest word, or -1
+	 * @param cDist the distance to the closest word, or Integer.MAX_VALUE
+	 * @param nWord the dictionary id of the next closest word, or -1
+	 * @param nDist the distance to the next closest word, or Integer.MAX_VALUE
+	 */
+	void set(int i, int cWord, int cDist, int nWord, int nDist) {
+		closestWord[i] = cWord;
+		closestDist[i] = cWord < 0 ? NONE : (byte) cDist;
+		nextWord[i] = nWord;
+		nextDist[i] = nWord < 0 ? NONE : (byte) nDist;
+	}
+	
+	/**
+	 * @return the number of words in the graph
+	 */
+	int size() {
+		return closestWord.length;
+	}
+	
+	int getClosestWord(int i) {
+		return closestWord[i];
+	}
+	
+	/**
+	 * @return the distance from word i to its closest word, or Integer.MAX_VALUE if it has no neighbours
+	 */
+	int getClosestDist(int i) {
+		return closestDist[i] == NONE ? Integer.MAX_VALUE : closestDist[i];
+	}
+	
+	int getNextWord(int i) {
+		return nextWord[i];
+	}
+	
+	/**
+	 * @return the distance from word i to its next closest word, or Integer.MAX_VALUE if it has fewer than two neighbours
+	 */
+	int getNextDist(int i) {
+		return nextDist[i] == NONE ? Integer.MAX_VALUE : nextDist[i];
+	}
+}
@@ -1,20 +1,37 @@
 /**
  * The class with the main method to drive the optimization process
  */
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class Optimizer {
 	/*************************************************
     *  PARAMETERS TO CONTROL THE OPTIMIZATION PROCESS
 	**************************************************/
-	static int SEED = 4; // A seed for the random number generator to produce consistent results
-	public static Random prng; // The prng that should be used throughout the optimization process
+	static int SEED = 4; // A seed for the random number generator to produce consistent results; each unit of
+						 // work draws from its own stream derived from it (see RandomStreams)
 	public static int VERBOSITY = 0; // A variable that controls how much output the optimization
 									// process produces
 	static int populationSize = 40; // The size of a generation in the GA
 	static int generations = 100; // The number of generations in the optimization process
 	static int rounds = 1; // the number of rounds the GA will run //delete?
 	static boolean USE_ELITISM = true; // Do we use elitism in determining which solutions to kill
+	// How parents are selected: SelectRoulette, SelectAlias, SelectRank or SelectTournament
+	static SelectionOperator selectionOperator = new SelectRoulette();
+	static boolean KEEP_WORDS = false; // Do the solutions in the population keep the words that can be made on them;
+									   // otherwise they are released after each generation and found again if needed
+	static boolean USE_COARSE_SCREEN = false; // Do we estimate the fitness of each mutation from the most frequent words,
+											  // and only evaluate it in full if the estimate is competitive
+	static int coarseTierSize = 500; // The number of frequent words used for the estimate
+	static double coarseMargin = 0.98; // A mutation is evaluated in full if its estimate is at least this fraction of
+									   // the estimate for the child it would replace
+	static boolean CANONICAL_CHILDREN = false; // Do we rotate and reverse the wheels of each child into their canonical
+											   // layout before it joins the population
+	static int threads = 1; // The number of threads that generate children; with 1 they are generated on the main thread
+	static boolean COLLECT_METRICS = false; // Do we count and time the evaluations, the neighbour searches and the mutations
+											// (see Metrics); they are printed at the end of the run
+	static boolean USE_VECTOR_KERNEL = false; // Do we compute word distances with the Vector API; this needs the
+											  // classes built from vector/src and --add-modules jdk.incubator.vector,
+											  // and falls back to the scalar kernel
 	
 	// The operators used to produce the initial solutions
 	static InitializationOperator[] initOps = { new InitOpRandom(), new InitOpChooseWords(), new InitOpRaffle()};
@@ -30,16 +47,48 @@ public class Optimizer {
 
 	// The maximum number of times each mutation operator will run
 	static int[] mutationMaxTimes = {50,50,50,50,50};
-
-	public static int sleep = 0; //number of mutation iterations a mutation operator will sleep for.
+	// How the mutations of each child are spread over the operators: ScheduleFixed runs operator i a random number
+	// of times below mutationMaxTimes[i]; ScheduleThompson spends the same number of mutations where they have
+	// improved the fitness the most per millisecond
+	static MutationScheduler mutationScheduler = new ScheduleFixed();
+	// Limits on the mutations of each child, to save evaluations once they stop paying off; 0 means no limit
+	static int stagnationLimit = 0; // An operator stops mutating a child after this many mutations in a row that did
+									// not improve it
+	static int childEvaluationLimit = 0; // The number of mutations evaluated for each child
+	static int generationEvaluationLimit = 0; // The number of mutations evaluated in each generation; with more than
+											  // one thread, which children are cut short depends on the timing
+	
+	// The island model: with more than one island, each island evolves its own population on its own thread
+	static int islands = 1; // The number of islands
+	static int migrationInterval = 5; // The number of generations between migrations
+	static int migrants = 2; // The number of the fittest solutions an island sends when it migrates
+	static IslandModel.Topology topology = IslandModel.Topology.RING; // How the island that receives migrants is chosen
+	// The initialization weights and mutation budgets of the islands; island i uses row i % [number of rows]
+	static double[][] islandInitOpWeights = {{1.0,1.0,1.0}, {2.0,1.0,1.0}, {1.0,2.0,1.0}, {1.0,1.0,2.0}};
+	static int[][] islandMutationMaxTimes = {{50,50,50,50,50}, {80,30,50,30,30}, {30,80,30,50,50}, {50,30,80,30,50}};
+	
+	// A cluster of worker processes, each running one island (see ClusterCoordinator and ClusterWorker)
+	static String coordinatorHost = "localhost"; // The host the coordinator runs on
+	static int clusterPort = 4590; // The port the coordinator listens on
 	
 	/**
 	 * The driver method for the optimization process
 	 * @param args not used
 	 */
 	public static void main(String[] args) {
-		prng = new Random(SEED);
-		Population population = new Population(initOps, initOpWeights, populationSize);
+		if (islands > 1) {
+			IslandModel model = new IslandModel(initOps, islandInitOpWeights, populationSize, islands, SEED);
+			model.run(mutationOperators, islandMutationMaxTimes, generations, migrationInterval, migrants, topology);
+			System.out.print("Best solution, score: ");
+			System.out.println(model.getBest().getScore());
+			System.out.println(model.getBest().toString());
+			printCacheStats();
+			return;
+		}
+		Population population = new Population(initOps, initOpWeights, populationSize, SEED);
+		if (threads > 1) {
+			population.setPool(new ForkJoinPool(threads));
+		}
 
 		for (int g = 0; g < generations; g++) {
 			System.out.println("Generation " + (g+1));
@@ -48,6 +97,7 @@ public class Optimizer {
 		System.out.print("Best solution, score: ");
 		System.out.println(population.getBest().getScore());
 		System.out.println(population.getBest().toString());
+		printCacheStats();
 
 		//delete
 //		int min = Integer.MAX_VALUE;
@@ -84,6 +134,21 @@ public class Optimizer {
 
 	}
 
+	/**
+	 * Print how often the caches saved an evaluation, if VERBOSITY > 0, and the metrics, if they were collected
+	 */
+	static void printCacheStats() {
+		if (Optimizer.VERBOSITY > 0) {
+			System.out.println("Fitness cache hits: " + FitnessCache.getHits() + " misses: " + FitnessCache.getMisses());
+			System.out.println("Word set cache hits: " + WordSetCache.getHits() + " misses: " + WordSetCache.getMisses());
+			if (USE_COARSE_SCREEN) System.out.println("Mutations rejected by the coarse screen: " + Population.coarseRejections.sum());
+		}
+		if (COLLECT_METRICS) {
+			System.out.println("Metrics:");
+			Metrics.print(System.out);
+		}
+	}
+
 	public static double calculateSD(int[] bestGen, double sum, double mean)
 	{
 		double standardDeviation = 0.0;
@@ -2,29 +2,57 @@
  * The population of lock configurations for the GA
  */
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Population {
 	private enum ResultCode {DUPLICATE, SUCCESS, BEST_SO_FAR}; // the result of adding a lock configuration to the population
-	private ArrayDeque<Solution> populationList = new ArrayDeque<>(); // a queue of populations, used to remove the old generation
+	private Solution[] members = new Solution[16]; // the lock configurations in the population, oldest first; with elitism
+												   // the survivors of each generation are sorted fittest first
+	private double[] scores = new double[16]; // scores[i] is the fitness of members[i]
+	private int size; // the number of lock configurations in the population
 	private HashSet<Solution> populationSet = new HashSet<>(); // the current set of lock configurations, used to prevent duplicate
 															   // configurations
 	private Solution bestSolutionSoFar; // The best configuration so far
 	private int targetSize; // The target population size
 	private Long lastGenerationTime;
+	private Solution[] generation; // The solutions that parents are selected from during runGeneration
+	private double[] generationScores; // generationScores[i] is the fitness of generation[i]
+	private SelectionOperator.Selector selector; // Selects parents from generation
+	private MutationScheduler.Schedule schedule; // Spreads the mutations of each child in the generation over the operators
+	private ForkJoinPool pool; // The pool used to generate children in parallel, or null to generate them on
+							   // the calling thread
+	private RandomStreams streams; // The source of the random numbers for each unit of work
+	private int generationNumber = -1; // The number of the generation being run, counting from 0
+	private int pairNumber; // The number of parent pairs selected so far in the generation
+	static final LongAdder coarseRejections = new LongAdder(); // The number of mutations rejected by the coarse screen
+	private final LongAdder evaluations = new LongAdder(); // The number of mutations evaluated in the generation
+	// The number of mutations in the generation that were planned but not run, because their operator had stopped
+	// improving the child, because the child had used all its evaluations, or because the generation had
+	private final LongAdder savedByStagnation = new LongAdder();
+	private final LongAdder savedByChildLimit = new LongAdder();
+	private final LongAdder savedByGenerationLimit = new LongAdder();
+	private String name = ""; // A name printed before the population's statistics, to tell populations apart
+	private static final Metrics.Histogram generationTimes = Metrics.histogram("population.generations");
+	private Metrics.Histogram[] mutationTimes; // The metrics of the mutation operators of the generation, if they are
+	private Metrics.Counter[] acceptedMutations; // collected: the time of each mutation, the mutations that improved
+	private Metrics.Counter[] duplicateMutations; // the child, and the mutations that had been evaluated before
 	
 	/**
 	 * Seed the population with initial solutions
 	 * @param agents an array of initialization agents that generate initial solutions
 	 * @param weights weights[i]/[Sum of weights] is the probability that agents[i] will run
 	 * @param targetSize the size of the population 
+	 * @param seed the seed that all random numbers used by the population are derived from
 	 */
-	Population(InitializationOperator[] agents, double[] weights, int targetSize) {
+	Population(InitializationOperator[] agents, double[] weights, int targetSize, long seed) {
 		this.targetSize = targetSize;
+		this.streams = new RandomStreams(seed);
 		if (agents.length == 0) {
 			throw new IllegalArgumentException("You must pass at least one initialization operator to seed the population.");
 		}
@@ -40,9 +68,10 @@ public class Population {
 		}
 		
 		// Seed the population with initial solutions
-		while (populationList.size() != targetSize) {
-			InitializationOperator agent = rouletteSelection(agents, weights, sum);
-			Solution solution = agent.run();
+		for (int attempt = 0; size != targetSize; attempt++) {
+			SplittableRandom rng = streams.forInitialization(attempt);
+			InitializationOperator agent = rouletteSelection(agents, weights, sum, rng);
+			Solution solution = agent.run(rng);
 			switch (insert(solution)) {
 			case SUCCESS:
 				if (Optimizer.VERBOSITY > 1) System.out.println(agent.getName() + ": " + solution.getScore() + " " + solution.toString());
@@ -61,84 +90,227 @@ public class Population {
 	 * Create a new generation of child solutions
 	 * 
 	 * @param mutationOperators an array of mutation operators to apply to the children
-	 * @param maxMutations maxMutations[i] is the maximum number of mutations to apply mutationOperator[i]
+	 * @param maxMutations maxMutations[i] is the maximum number of mutations to apply mutationOperator[i], as
+	 *        spread over the operators by Optimizer.mutationScheduler
 	 */
 	public void runGeneration(MutationOperator[] mutationOperators, int[] maxMutations) {
+		long start = System.nanoTime();
+		GenerationEvent event = new GenerationEvent();
+		event.begin();
+		if (Optimizer.COLLECT_METRICS) {
+			mutationTimes = new Metrics.Histogram[mutationOperators.length];
+			acceptedMutations = new Metrics.Counter[mutationOperators.length];
+			duplicateMutations = new Metrics.Counter[mutationOperators.length];
+			for (int j = 0; j < mutationOperators.length; j++) {
+				String metric = "mutation." + mutationOperators[j].getName();
+				mutationTimes[j] = Metrics.histogram(metric);
+				acceptedMutations[j] = Metrics.counter(metric + ".accepted");
+				duplicateMutations[j] = Metrics.counter(metric + ".duplicates");
+			}
+		}
+		generation = Arrays.copyOf(members, size);
+		generationScores = Arrays.copyOf(scores, size);
+		selector = Optimizer.selectionOperator.prepare(generationScores);
+		schedule = Optimizer.mutationScheduler.prepare(schedule, maxMutations);
+		generationNumber++;
+		pairNumber = 0;
+		evaluations.reset();
+		savedByStagnation.reset();
+		savedByChildLimit.reset();
+		savedByGenerationLimit.reset();
 		// Create children
-		while (populationList.size() < targetSize * 2) {
-			generateChildren(mutationOperators, maxMutations);
+		if (pool == null) {
+			while (size < targetSize * 2) {
+				generateChildren(mutationOperators);
+			}
+		}
+		else {
+			while (size < targetSize * 2) {
+				// Each task produces and evaluates two children; they are inserted in order once all are done
+				int pairs = (targetSize * 2 - size + 1) / 2;
+				ArrayList<ForkJoinTask<Solution[]>> tasks = new ArrayList<>(pairs);
+				for (int p = 0; p < pairs; p++) {
+					int pair = pairNumber++;
+					tasks.add(pool.submit(() -> produceChildren(mutationOperators, pair)));
+				}
+				for (ForkJoinTask<Solution[]> task : tasks) {
+					insertChildren(task.join());
+				}
+			}
 		}
 		if (!Optimizer.USE_ELITISM) {
-			// Kill the parents
-			while (populationList.size() > targetSize) {
-				populationSet.remove(populationList.remove());
+			// Kill the parents, which are the oldest solutions
+			int dead = Math.max(0, size - targetSize);
+			for (int i = 0; i < dead; i++) {
+				populationSet.remove(members[i]);
+				members[i].releaseWords();
 			}
+			removeRange(0, dead);
 		}
-		else {
+		else if (size > targetSize) {
 			// Use elitism and kill the least fit solutions
-			PriorityQueue<Solution> pq = new PriorityQueue<>();
-			for (Solution solution: populationList) {
-				pq.add(solution);
-			}
-			for (int i = 0; i < targetSize; i++) pq.remove();
-			while(pq.size() > 0) {
-				Solution unfit = pq.remove();
-				populationSet.remove(unfit);
+			selectFittest(targetSize);
+			for (int i = targetSize; i < size; i++) {
+				populationSet.remove(members[i]);
+				members[i].releaseWords();
 			}
-			populationList.clear();
-			for (Solution solution: populationSet) {
-				populationList.add(solution);
+			removeRange(targetSize, size);
+			sortFittestFirst(0, size - 1);
+		}
+		if (!Optimizer.KEEP_WORDS) {
+			// Parents are only read for their letters, so the survivors only need their scores
+			for (int i = 0; i < size; i++) {
+				members[i].releaseWords();
 			}
 		}
 		double bestInPopulation = Double.MIN_VALUE;
 		double worstInPopulation = Double.MAX_VALUE;
 		double sumOfPopulation = 0.0;
-		for (Solution solution: populationList) {
-			bestInPopulation = Math.max(bestInPopulation, solution.getScore());
-			worstInPopulation = Math.min(worstInPopulation, solution.getScore());
-			sumOfPopulation += solution.getScore();
+		for (int i = 0; i < size; i++) {
+			bestInPopulation = Math.max(bestInPopulation, scores[i]);
+			worstInPopulation = Math.min(worstInPopulation, scores[i]);
+			sumOfPopulation += scores[i];
 		}
 		if (lastGenerationTime != null)
-			System.out.println("Time (ms): " + (System.currentTimeMillis() - lastGenerationTime));
+			System.out.println(name + "Time (ms): " + (System.currentTimeMillis() - lastGenerationTime));
 		lastGenerationTime = System.currentTimeMillis();
-		System.out.println("Population Stats: best: " + bestInPopulation + " worst: " + worstInPopulation + 
-				" ave: " + sumOfPopulation / populationList.size());
+		System.out.println(name + "Population Stats: best: " + bestInPopulation + " worst: " + worstInPopulation + 
+				" ave: " + sumOfPopulation / size);
+		if (Optimizer.VERBOSITY > 0) {
+			System.out.println(name + "Mutations: " + schedule);
+			long saved = savedByStagnation.sum() + savedByChildLimit.sum() + savedByGenerationLimit.sum();
+			System.out.println(name + "Evaluations: " + evaluations.sum() + " saved: " + saved + " (stagnation: "
+					+ savedByStagnation.sum() + " child limit: " + savedByChildLimit.sum() + " generation limit: "
+					+ savedByGenerationLimit.sum() + ")");
+		}
+		if (Optimizer.COLLECT_METRICS) generationTimes.record(System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.population = name;
+			event.generation = generationNumber;
+			event.best = bestInPopulation;
+			event.average = sumOfPopulation / size;
+			event.evaluations = evaluations.sum();
+			event.commit();
+		}
 		
 	}
 	
 	/**
 	 * Go through the selection, crossover, and mutation phases
 	 * @param mutationOperators the mutation operators to apply to offspring
-	 * @param maxMutations we choose a random number in [0..maxMutations[i]) to apply operator at mutation[i]
 	 */
-	public void generateChildren(MutationOperator[] mutationOperators, int[] maxMutations) {
-		Solution[] parents = selectParents();
-		Solution[] children = crossover(parents);
+	public void generateChildren(MutationOperator[] mutationOperators) {
+		insertChildren(produceChildren(mutationOperators, pairNumber++));
+	}
+	
+	/**
+	 * Go through the selection, crossover, and mutation phases without changing the population.
+	 * This may run on several threads at once.
+	 * @param mutationOperators the mutation operators to apply to offspring
+	 * @param pair the number of the parent pair in this generation, which determines the random numbers used
+	 * @return the two children, which have been scored
+	 */
+	private Solution[] produceChildren(MutationOperator[] mutationOperators, int pair) {
+		SplittableRandom rng = streams.forPair(generationNumber, pair);
+		Solution[] parents = selectParents(rng);
+		Solution[] children = crossover(parents, rng);
 		
 		for (int i = 0; i < children.length; i++) {
-			// Run a greedy mutation process for child
-			Solution solution = children[i];
-			for (int j = 0; j < mutationOperators.length; j++) {
-				MutationOperator mutation =  mutationOperators[j];
-				//System.out.println(mutation.getName()); //delete
-				int times = Optimizer.prng.nextInt(maxMutations[j]);
-				for (int t = 0; t < times; t++) {
-					//System.out.print("score: " + children[i].getScore() + " "); //delete
-					//System.out.println(children[i]); //delete
-					solution = mutation.run(children[i]); // This would be another way to generate the mutations by always
-															// starting with the best mutation seen so far
-					//solution = mutation.run(solution);
-					if (solution.getScore() > children[i].getScore()) {
-						children[i] = solution;
+			// Run a greedy mutation process for child.  Each move is tried on a working copy of the child, which
+			// then either becomes the child or has the move undone.
+			SplittableRandom mutationRng = streams.forMutation(generationNumber, pair, i);
+			Solution trial = null;
+			MutationScheduler.Budget budget = schedule.start();
+			int[] failures = new int[mutationOperators.length]; // failures[j] is the number of mutations in a row by
+																// operator j that did not improve the child
+			int childEvaluations = 0;
+			int j;
+			while ((j = budget.next(mutationRng)) >= 0) {
+				if (Optimizer.childEvaluationLimit > 0 && childEvaluations >= Optimizer.childEvaluationLimit) {
+					savedByChildLimit.add(1 + budget.stop(-1, mutationRng));
+					break;
+				}
+				if (Optimizer.generationEvaluationLimit > 0 && evaluations.sum() >= Optimizer.generationEvaluationLimit) {
+					savedByGenerationLimit.add(1 + budget.stop(-1, mutationRng));
+					break;
+				}
+				long start = System.nanoTime();
+				MutationEvent event = new MutationEvent();
+				event.begin();
+				double gain = 0.0;
+				boolean duplicate = false;
+				Move move = mutationOperators[j].propose(children[i], mutationRng);
+				if (move == null) {
+					long nanos = System.nanoTime() - start;
+					budget.gaveUp(j, nanos);
+					if (Optimizer.COLLECT_METRICS) mutationTimes[j].record(nanos);
+					continue;
+				}
+				if (trial == null) trial = children[i].copy();
+				move.apply(trial);
+				trial.basis = children[i];
+				if (Optimizer.USE_COARSE_SCREEN && trial.score == null
+						&& trial.getCoarseScore() < children[i].getCoarseScore() * Optimizer.coarseMargin) {
+					coarseRejections.increment(); // Not competitive, so skip the full evaluation
+					move.undo(trial);
+				}
+				else {
+					childEvaluations++;
+					evaluations.increment();
+					double trialScore = trial.getScore();
+					duplicate = trial.cached;
+					if (trialScore > children[i].getScore()) {
+						gain = trialScore - children[i].getScore();
+						Solution replaced = children[i];
+						children[i] = trial;
+						trial = replaced;
+						move.apply(trial); // Bring the working copy up to date with the new child
+					}
+					else {
+						move.undo(trial);
 					}
 				}
+				long nanos = System.nanoTime() - start;
+				budget.record(j, gain, nanos);
+				if (Optimizer.COLLECT_METRICS) {
+					mutationTimes[j].record(nanos);
+					if (gain > 0.0) acceptedMutations[j].increment();
+					if (duplicate) duplicateMutations[j].increment();
+				}
+				if (event.shouldCommit()) {
+					event.operator = mutationOperators[j].getName();
+					event.accepted = gain > 0.0;
+					event.duplicate = duplicate;
+					event.gain = gain;
+					event.commit();
+				}
+				if (gain > 0.0) {
+					failures[j] = 0;
+				}
+				else if (++failures[j] == Optimizer.stagnationLimit) {
+					savedByStagnation.add(budget.stop(j, mutationRng));
+				}
 			}
+			children[i].getScore();
+			if (Optimizer.CANONICAL_CHILDREN) {
+				children[i] = children[i].canonicalize();
+			}
+		}
+		return children;
+	}
+	
+	/**
+	 * Add children to the population, reporting duplicates and new bests
+	 * @param children the children
+	 */
+	private void insertChildren(Solution[] children) {
+		for (int i = 0; i < children.length; i++) {
 			switch(insert(children[i])) {
 			case DUPLICATE:
 				if (Optimizer.VERBOSITY > 0) System.out.println("Offspring produced was duplicate. " + children[i].toString());
 				break;
 			case BEST_SO_FAR:
-				System.out.println("BEST " + " " + children[i].getScore() + " " + children[i].toString());
+				System.out.println(name + "BEST " + " " + children[i].getScore() + " " + children[i].toString());
 				break;
 			case SUCCESS:
 				if (Optimizer.VERBOSITY > 0) System.out.println(children[i].getScore() + " " + children[i].toString());
@@ -146,6 +318,73 @@ public class Population {
 		}
 	}
 
+	/**
+	 * Add solutions from another population, each replacing the least fit solution so that the size of the
+	 * population does not change, unless the population is empty, when a migrant simply joins it.  With elitism
+	 * the survivors are sorted fittest first again afterwards.
+	 * @param migrants the solutions, which must not be shared with another population
+	 */
+	public void immigrate(Solution[] migrants) {
+		boolean arrived = false;
+		for (Solution migrant : migrants) {
+			switch (insert(migrant)) {
+			case DUPLICATE:
+				continue;
+			case BEST_SO_FAR:
+				System.out.println(name + "BEST migrant: " + migrant.getScore() + " " + migrant.toString());
+				break;
+			case SUCCESS:
+				if (Optimizer.VERBOSITY > 0) System.out.println(name + "migrant: " + migrant.getScore() + " " + migrant.toString());
+			}
+			int unfit = -1;
+			for (int i = 0; i < size - 1; i++) { // The migrant is last
+				if (unfit < 0 || scores[i] < scores[unfit]) {
+					unfit = i;
+				}
+			}
+			if (unfit >= 0) {
+				populationSet.remove(members[unfit]);
+				members[unfit].releaseWords();
+				removeRange(unfit, unfit + 1);
+			}
+			arrived = true;
+		}
+		if (arrived && Optimizer.USE_ELITISM) {
+			sortFittestFirst(0, size - 1);
+		}
+	}
+	
+	/**
+	 * Copy the fittest solutions, to send them to another population
+	 * @param count the number of solutions
+	 * @return copies of the count fittest solutions, fittest first
+	 */
+	public Solution[] getElite(int count) {
+		Solution[] sorted = Arrays.copyOf(members, size);
+		Arrays.sort(sorted); // Solutions are ordered fittest first
+		Solution[] elite = new Solution[Math.min(count, size)];
+		for (int i = 0; i < elite.length; i++) {
+			elite[i] = sorted[i].copy();
+		}
+		return elite;
+	}
+	
+	/**
+	 * Set the name printed before the population's statistics
+	 * @param name the name
+	 */
+	public void setName(String name) {
+		this.name = name + ": ";
+	}
+
+	/**
+	 * Generate children on a pool of threads rather than on the calling thread
+	 * @param pool the pool, or null to generate children on the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	/** 
 	 * Accessor method 
 	 * @return the best solution seen so far
@@ -159,7 +398,7 @@ public class Population {
 	 * @return the number of children in the population
 	 */
 	public int getSize() {
-		return populationList.size();
+		return size;
 	}
 	
 	/**
@@ -167,10 +406,12 @@ public class Population {
 	 * @param agents the array of agents
 	 * @param weights weights[i]/sum is the probability that agents[i] will run
 	 * @param sum the sum of values in the weights array
+	 * @param rng the random number generator to use
 	 * @return
 	 */
-	private InitializationOperator rouletteSelection(InitializationOperator[] agents, double[] weights, double sum) {
-		double selector = Optimizer.prng.nextDouble() * sum;
+	private InitializationOperator rouletteSelection(InitializationOperator[] agents, double[] weights, double sum,
+			SplittableRandom rng) {
+		double selector = rng.nextDouble() * sum;
 		int index = 0;
 		while (selector > weights[index] && index < agents.length - 1) {
 			selector -= weights[index];
@@ -180,53 +421,15 @@ public class Population {
 	}
 	
 	/**
-	 * Use roulette wheel selection to select fit parents
-	 * @return an arraylist with two parents
+	 * Select two different fit parents, using the selection operator
+	 * @param rng the random number generator to use
+	 * @return an array with two parents
 	 */
-	private Solution[] selectParents() {
+	private Solution[] selectParents(SplittableRandom rng) {
 		Solution[] parents = new Solution[2];
-		double sum = 0;
-		int count = 0;
-		for (Solution solution: populationList) {
-			if (count == targetSize) break;
-			sum += solution.getScore();
-			count++;
-		}
-		double selector = sum * Optimizer.prng.nextDouble();
-		count = 0;
-		for (Solution solution: populationList) {
-			selector -= solution.getScore();
-			if (selector <= 0 || count == targetSize - 1) {
-				parents[0] = solution;
-				break;
-			}
-			count++;
-		}
-		sum = 0;
-		count = 0;
-		for (Solution solution: populationList) {
-			if (count == targetSize) break;
-			if (solution != parents[0]) {
-				sum += solution.getScore();
-				count++;
-			}
-		}
-		selector = sum * Optimizer.prng.nextDouble();
-		count = 0;
-		for (Solution solution: populationList) {
-			if (solution != parents[0]) {
-				selector -= solution.getScore();
-				if (selector <= 0) {
-					parents[1] = solution;
-					break;
-				}
-			}
-			count++;
-			if (count == targetSize) {
-				parents[1] = solution;
-				break;
-			}
-		}
+		int first = selector.select(rng, -1);
+		parents[0] = generation[first];
+		parents[1] = generation[selector.select(rng, first)];
 		return parents;
 	}
 	
@@ -236,27 +439,27 @@ public class Population {
 	 * the other letters for the other offspring.
 	 * 
 	 * @param parents the parents
+	 * @param rng the random number generator to use
 	 * @return an array of two child lock configurations
 	 */
-	private Solution[] crossover(Solution[] parents) {
+	private Solution[] crossover(Solution[] parents, SplittableRandom rng) {
 		Solution[] children = {new Solution(), new Solution()};
 		
 		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
-			String[] pWheel = {parents[0].getWheel(w),parents[1].getWheel(w)};
-			int xpos1 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE * 2 / 3) + 1;
-			int xpos2 = Optimizer.prng.nextInt(Solution.WHEEL_SIZE - xpos1) + xpos1 + 1;
+			int xpos1 = rng.nextInt(Solution.WHEEL_SIZE * 2 / 3) + 1;
+			int xpos2 = rng.nextInt(Solution.WHEEL_SIZE - xpos1) + xpos1 + 1;
 			for (int i = 0; i < xpos1; i++) {
 				for (int c = 0; c < children.length; c++)
-					children[c].addLetter(w, pWheel[c].charAt(i));
+					children[c].addLetter(w, parents[c].getLetter(w, i));
 			}
 			for (int c = 0; c < children.length; c++) {
 				while(children[c].getWheelSize(w) < xpos2) {
 					int ndx = xpos1;
-					int p = (c+1)%pWheel.length;
-					char letter = pWheel[p].charAt(ndx);
+					int p = (c+1)%parents.length;
+					char letter = parents[p].getLetter(w, ndx);
 					while (children[c].hasLetter(w, letter)) {
 						ndx = (ndx + 1) % Solution.WHEEL_SIZE;
-						letter = pWheel[p].charAt(ndx);
+						letter = parents[p].getLetter(w, ndx);
 					}
 					children[c].addLetter(w, letter);
 				}
@@ -265,10 +468,10 @@ public class Population {
 				while(children[c].getWheelSize(w) < Solution.WHEEL_SIZE) {
 					int ndx = xpos2;
 					int p = c;
-					char letter = pWheel[p].charAt(ndx);
+					char letter = parents[p].getLetter(w, ndx);
 					while (children[c].hasLetter(w, letter)) {
 						ndx = (ndx + 1) % Solution.WHEEL_SIZE;
-						letter = pWheel[p].charAt(ndx);
+						letter = parents[p].getLetter(w, ndx);
 					}
 					children[c].addLetter(w, letter);
 				}
@@ -278,6 +481,96 @@ public class Population {
 		return children;
 	}
 
+	/**
+	 * Remove the solutions in a range of positions from the population, keeping the order of the others.
+	 * The solutions must already have been removed from populationSet.
+	 * @param from the first position to remove
+	 * @param to the position after the last one to remove
+	 */
+	private void removeRange(int from, int to) {
+		System.arraycopy(members, to, members, from, size - to);
+		System.arraycopy(scores, to, scores, from, size - to);
+		Arrays.fill(members, size - (to - from), size, null);
+		size -= to - from;
+	}
+	
+	/**
+	 * Reorder the population so that the count fittest solutions come first, using quickselect on the
+	 * scores, which takes time linear in the size of the population on average
+	 * @param count the number of solutions
+	 */
+	private void selectFittest(int count) {
+		int lo = 0;
+		int hi = size - 1;
+		int[] bounds = new int[2];
+		while (lo < hi) {
+			partition(lo, hi, bounds);
+			if (count < bounds[0]) hi = bounds[0] - 1;
+			else if (count > bounds[1] + 1) lo = bounds[1] + 1;
+			else return;
+		}
+	}
+	
+	/**
+	 * Sort a range of positions fittest first, using quicksort on the scores
+	 * @param lo the first position
+	 * @param hi the last position
+	 */
+	private void sortFittestFirst(int lo, int hi) {
+		int[] bounds = new int[2];
+		while (hi - lo > 16) {
+			partition(lo, hi, bounds);
+			// Recurse into the smaller side, so the depth of the recursion is logarithmic
+			if (bounds[0] - lo < hi - bounds[1]) {
+				sortFittestFirst(lo, bounds[0] - 1);
+				lo = bounds[1] + 1;
+			}
+			else {
+				sortFittestFirst(bounds[1] + 1, hi);
+				hi = bounds[0] - 1;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			for (int j = i; j > lo && scores[j] > scores[j - 1]; j--) swap(j, j - 1);
+		}
+	}
+	
+	/**
+	 * Partition a range of positions around the median score of its first, middle and last solutions
+	 * @param lo the first position
+	 * @param hi the last position
+	 * @param bounds set so that the solutions in [lo..bounds[0]) are fitter than the pivot, those in
+	 *               [bounds[0]..bounds[1]] are as fit, and those in (bounds[1]..hi] are less fit
+	 */
+	private void partition(int lo, int hi, int[] bounds) {
+		double a = scores[lo];
+		double b = scores[(lo + hi) >>> 1];
+		double c = scores[hi];
+		double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+		int lt = lo;
+		int gt = hi;
+		int i = lo;
+		while (i <= gt) {
+			if (scores[i] > pivot) swap(lt++, i++);
+			else if (scores[i] < pivot) swap(i, gt--);
+			else i++;
+		}
+		bounds[0] = lt;
+		bounds[1] = gt;
+	}
+	
+	/**
+	 * Exchange the solutions at two positions
+	 */
+	private void swap(int i, int j) {
+		Solution solution = members[i];
+		members[i] = members[j];
+		members[j] = solution;
+		double score = scores[i];
+		scores[i] = scores[j];
+		scores[j] = score;
+	}
+
 	/**
 	 * Add a solution to the population, if there is not an identical solution already present
 	 * @param solution the solution to be added
@@ -288,7 +581,13 @@ public class Population {
 		if (populationSet.contains(solution)) return ResultCode.DUPLICATE;
 		//int score = solution.getScore();
 		double score = solution.getScore();
-		populationList.add(solution);
+		if (size == members.length) {
+			members = Arrays.copyOf(members, size * 2);
+			scores = Arrays.copyOf(scores, size * 2);
+		}
+		members[size] = solution;
+		scores[size] = score;
+		size++;
 		populationSet.add(solution);
 		if (bestSolutionSoFar == null || bestSolutionSoFar.getScore() < score) {
 			bestSolutionSoFar = solution;
@@ -0,0 +1,86 @@
+import java.util.SplittableRandom;
+
+/**
+ * Independent streams of random numbers derived from the seed of a run.
+ * Each unit of work (an initialization, a parent pair, a mutation chain) gets its own stream, keyed by
+ * where it falls in the run rather than by which thread runs it or when, so a run with a given seed
+ * produces the same results with any number of threads.
+ */
+public class RandomStreams {
+	private static final long INITIALIZATION = 1; // Stream kinds, so the different kinds of streams never collide
+	private static final long PAIR = 2;
+	private static final long MUTATION = 3;
+	private static final long ISLAND = 4;
+	private static final long MIGRATION = 5;
+	
+	private final long seed;
+	
+	/**
+	 * @param seed the seed of the run
+	 */
+	RandomStreams(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * @param attempt the number of initial solutions that have been created so far
+	 * @return the stream for choosing an initialization operator and creating an initial solution
+	 */
+	SplittableRandom forInitialization(int attempt) {
+		return stream(INITIALIZATION, attempt, 0, 0);
+	}
+	
+	/**
+	 * @param generation the generation, counting from 0
+	 * @param pair the number of parent pairs selected so far in the generation
+	 * @return the stream for selecting a pair of parents and crossing them over
+	 */
+	SplittableRandom forPair(int generation, int pair) {
+		return stream(PAIR, generation, pair, 0);
+	}
+	
+	/**
+	 * @param generation the generation, counting from 0
+	 * @param pair the number of parent pairs selected so far in the generation
+	 * @param child which of the pair's children is being mutated
+	 * @return the stream for the mutations of one child
+	 */
+	SplittableRandom forMutation(int generation, int pair, int child) {
+		return stream(MUTATION, generation, pair, child);
+	}
+	
+	/**
+	 * @param island the number of the island
+	 * @return the stream for the seed of an island, which derives its own streams from that seed
+	 */
+	SplittableRandom forIsland(int island) {
+		return stream(ISLAND, island, 0, 0);
+	}
+	
+	/**
+	 * @return the stream for choosing where migrants are sent
+	 */
+	SplittableRandom forMigration() {
+		return stream(MIGRATION, 0, 0, 0);
+	}
+	
+	/**
+	 * Hash the seed and the keys into the seed of a new stream
+	 */
+	private SplittableRandom stream(long kind, long a, long b, long c) {
+		long h = mix(seed + kind * 0x9E3779B97F4A7C15L);
+		h = mix(h + a);
+		h = mix(h + b);
+		h = mix(h + c);
+		return new SplittableRandom(h);
+	}
+	
+	/**
+	 * The finalizer of the SplitMix64 generator
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * A move that puts a letter that is not on a wheel in place of one that is
+ */
+public class ReplaceMove extends Move {
+	private final int wheel;
+	private final int position;
+	private final char letter;
+	private char oldLetter; // The letter that was replaced when the move was last applied
+	
+	/**
+	 * @param wheel the wheel
+	 * @param position the position of the letter to replace
+	 * @param letter the new letter, which must not be on the wheel
+	 */
+	ReplaceMove(int wheel, int position, char letter) {
+		this.wheel = wheel;
+		this.position = position;
+		this.letter = letter;
+	}
+	
+	@Override
+	void apply(Solution solution) {
+		oldLetter = solution.getLetter(wheel, position);
+		solution.setLetter(wheel, position, letter);
+	}
+	
+	@Override
+	void undo(Solution solution) {
+		solution.setLetter(wheel, position, oldLetter);
+	}
+}
@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The fixed schedule: the operators run in order, operator i a random number of times in [0..maxMutations[i])
+ */
+public class ScheduleFixed extends MutationScheduler {
+	@Override
+	public Schedule prepare(Schedule previous, int[] maxMutations) {
+		return new Schedule() {
+			@Override
+			public Budget start() {
+				return new FixedBudget(maxMutations);
+			}
+			
+			@Override
+			public String toString() {
+				return "fixed " + Arrays.toString(maxMutations);
+			}
+		};
+	}
+	
+	/**
+	 * Runs each operator in turn
+	 */
+	private static class FixedBudget implements Budget {
+		private final int[] maxMutations;
+		private int operator = -1; // The operator being run
+		private int remaining; // The number of times it still has to run
+		
+		FixedBudget(int[] maxMutations) {
+			this.maxMutations = maxMutations;
+		}
+		
+		@Override
+		public int next(SplittableRandom rng) {
+			while (remaining == 0) {
+				if (++operator == maxMutations.length) {
+					operator--;
+					return -1;
+				}
+				remaining = rng.nextInt(maxMutations[operator]);
+			}
+			remaining--;
+			return operator;
+		}
+		
+		@Override
+		public void record(int operator, double gain, long nanos) {
+		}
+		
+		@Override
+		public void gaveUp(int operator, long nanos) {
+		}
+		
+		@Override
+		public int stop(int operator, SplittableRandom rng) {
+			if (operator >= 0 && operator != this.operator) return 0; // Only the operator whose turn it is has been running
+			int stopped = remaining;
+			remaining = 0;
+			if (operator < 0) {
+				// Draw the mutations of the later operators, as they would have been
+				while (++this.operator < maxMutations.length) {
+					stopped += rng.nextInt(maxMutations[this.operator]);
+				}
+				this.operator--;
+			}
+			return stopped;
+		}
+	}
+}
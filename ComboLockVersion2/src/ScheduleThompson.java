@@ -0,0 +1,233 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An adaptive schedule that treats the operators as the arms of a multi-armed bandit and spends each child's
+ * mutations on the operator that is expected to improve the fitness the most per millisecond.
+ * 
+ * Each child gets as much time as the fixed schedule would be expected to take, drawing the number of times each
+ * operator runs in the same way, but never more than MUTATION_LIMIT times as many mutations as the fixed schedule
+ * could give it.  An operator that gives up is not run again on the same child.  For each mutation,
+ * the chance that each operator improves the child is drawn from its Beta posterior (Thompson sampling), and is
+ * multiplied by the operator's mean improvement and divided by its mean time per mutation.  The operator with the
+ * largest product runs, so cheap operators run more often than expensive ones of the same value.
+ * The statistics are updated between generations, so the children of a generation are mutated independently of
+ * each other, and those of earlier generations are discounted as the population converges.  Since the times
+ * vary from run to run, so do the results.
+ */
+public class ScheduleThompson extends MutationScheduler {
+	static int MUTATION_LIMIT = 4; // A child gets at most this many times as many mutations as the fixed schedule could
+								   // give it, in case the operators hardly take any time
+	private final double decay; // The weight of the statistics of a generation in the next one
+	
+	public ScheduleThompson() {
+		this(0.8);
+	}
+	
+	/**
+	 * @param decay the weight given to the statistics of each earlier generation, relative to the one after it,
+	 *        in range (0..1]
+	 */
+	public ScheduleThompson(double decay) {
+		if (decay <= 0.0 || decay > 1.0) {
+			throw new IllegalArgumentException("The decay must be in (0..1].");
+		}
+		this.decay = decay;
+	}
+	
+	@Override
+	public Schedule prepare(Schedule previous, int[] maxMutations) {
+		Stats stats = new Stats(maxMutations);
+		if (previous instanceof Stats && ((Stats) previous).attempts.length == maxMutations.length) {
+			Stats old = (Stats) previous;
+			for (int j = 0; j < maxMutations.length; j++) {
+				stats.attempts[j] = decay * (old.attempts[j] + old.newAttempts[j].sum());
+				stats.successes[j] = decay * (old.successes[j] + old.newSuccesses[j].sum());
+				stats.gains[j] = decay * (old.gains[j] + old.newGains[j].sum());
+				stats.millis[j] = decay * (old.millis[j] + old.newNanos[j].sum() / 1e6);
+			}
+		}
+		stats.setPriors();
+		return stats;
+	}
+	
+	@Override
+	public String getName() {
+		return super.getName() + "(" + decay + ")";
+	}
+	
+	/**
+	 * The statistics of the operators up to the start of a generation, and the outcomes of the mutations in it
+	 */
+	private static class Stats implements Schedule {
+		private final int[] maxMutations;
+		private final double[] attempts; // The discounted number of times each operator has run
+		private final double[] successes; // The discounted number of times each operator has improved a child
+		private final double[] gains; // The discounted total improvement from each operator
+		private final double[] millis; // The discounted total time taken by each operator
+		private final LongAdder[] newAttempts; // The outcomes in this generation, added from several threads
+		private final LongAdder[] newSuccesses;
+		private final DoubleAdder[] newGains;
+		private final LongAdder[] newNanos;
+		private double priorGain = 1.0; // The mean improvement assumed for an operator before it improves a child
+		private double priorMillis = 1.0; // The mean time assumed for an operator before it runs
+		
+		Stats(int[] maxMutations) {
+			int n = maxMutations.length;
+			this.maxMutations = maxMutations;
+			attempts = new double[n];
+			successes = new double[n];
+			gains = new double[n];
+			millis = new double[n];
+			newAttempts = new LongAdder[n];
+			newSuccesses = new LongAdder[n];
+			newGains = new DoubleAdder[n];
+			newNanos = new LongAdder[n];
+			for (int j = 0; j < n; j++) {
+				newAttempts[j] = new LongAdder();
+				newSuccesses[j] = new LongAdder();
+				newGains[j] = new DoubleAdder();
+				newNanos[j] = new LongAdder();
+			}
+		}
+		
+		@Override
+		public Budget start() {
+			return new Budget() {
+				private double budgetMillis = -1.0; // The time the child may take, once it has been drawn
+				private double spentMillis; // The time the child has taken
+				private int remaining; // The number of mutations left before the limit
+				private boolean[] excluded = new boolean[maxMutations.length]; // The operators that have given up
+				
+				@Override
+				public int next(SplittableRandom rng) {
+					if (budgetMillis < 0.0) {
+						budgetMillis = 0.0;
+						for (int j = 0; j < maxMutations.length; j++) {
+							budgetMillis += rng.nextInt(maxMutations[j]) * (millis[j] + priorMillis) / (attempts[j] + 1.0);
+							remaining += MUTATION_LIMIT * (maxMutations[j] - 1);
+						}
+					}
+					if (remaining == 0 || spentMillis >= budgetMillis) return -1;
+					remaining--;
+					int best = -1;
+					double bestValue = -1.0;
+					for (int j = 0; j < maxMutations.length; j++) {
+						if (maxMutations[j] <= 1 || excluded[j]) continue; // The fixed schedule never runs it, or it gave up
+						double chance = sampleBeta(1.0 + successes[j], 1.0 + attempts[j] - successes[j], rng);
+						double gain = (gains[j] + priorGain) / (successes[j] + 1.0);
+						double time = (millis[j] + priorMillis) / (attempts[j] + 1.0);
+						double value = chance * gain / time;
+						if (value > bestValue) {
+							best = j;
+							bestValue = value;
+						}
+					}
+					if (best < 0) remaining = 0; // Every operator has given up
+					return best;
+				}
+				
+				@Override
+				public void record(int operator, double gain, long nanos) {
+					newAttempts[operator].increment();
+					if (gain > 0.0) {
+						newSuccesses[operator].increment();
+						newGains[operator].add(gain);
+					}
+					newNanos[operator].add(nanos);
+					spentMillis += nanos / 1e6;
+				}
+				
+				@Override
+				public void gaveUp(int operator, long nanos) {
+					// It is not run again on this child, but the time it took still counts against it
+					newAttempts[operator].increment();
+					newNanos[operator].add(nanos);
+					spentMillis += nanos / 1e6;
+					excluded[operator] = true;
+				}
+				
+				@Override
+				public int stop(int operator, SplittableRandom rng) {
+					// The mutations are not planned per operator: the time of a stopped operator goes to the others
+					if (operator < 0) remaining = 0;
+					else excluded[operator] = true;
+					return 0;
+				}
+			};
+		}
+		
+		/**
+		 * Use the mean improvement and time over all the operators as the priors of each operator
+		 */
+		private void setPriors() {
+			double totalSuccesses = 0.0, totalGains = 0.0, totalAttempts = 0.0, totalMillis = 0.0;
+			for (int j = 0; j < attempts.length; j++) {
+				totalSuccesses += successes[j];
+				totalGains += gains[j];
+				totalAttempts += attempts[j];
+				totalMillis += millis[j];
+			}
+			if (totalSuccesses > 0.0) priorGain = totalGains / totalSuccesses;
+			if (totalAttempts > 0.0) priorMillis = totalMillis / totalAttempts;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int j = 0; j < attempts.length; j++) {
+				double runs = attempts[j] + newAttempts[j].sum();
+				double improved = successes[j] + newSuccesses[j].sum();
+				double time = millis[j] + newNanos[j].sum() / 1e6;
+				sb.append(String.format("%s[%d: %.0f runs, %.3f improved, %.3f ms each]", j == 0 ? "" : " ", j, runs,
+						runs > 0 ? improved / runs : 0.0, runs > 0 ? time / runs : 0.0));
+			}
+			return sb.toString();
+		}
+	}
+	
+	/**
+	 * @param a the first shape parameter, which must be at least 1
+	 * @param b the second shape parameter, which must be at least 1
+	 * @param rng the random number generator to use
+	 * @return a sample from the Beta(a, b) distribution
+	 */
+	private static double sampleBeta(double a, double b, SplittableRandom rng) {
+		double x = sampleGamma(a, rng);
+		return x / (x + sampleGamma(b, rng));
+	}
+	
+	/**
+	 * Marsaglia and Tsang's method
+	 * @param shape the shape parameter, which must be at least 1
+	 * @param rng the random number generator to use
+	 * @return a sample from the Gamma(shape, 1) distribution
+	 */
+	private static double sampleGamma(double shape, SplittableRandom rng) {
+		double d = shape - 1.0 / 3.0;
+		double c = 1.0 / Math.sqrt(9.0 * d);
+		while (true) {
+			double z = sampleGaussian(rng);
+			double v = 1.0 + c * z;
+			if (v <= 0.0) continue;
+			v = v * v * v;
+			double u = rng.nextDouble();
+			if (Math.log(u) < 0.5 * z * z + d - d * v + d * Math.log(v)) return d * v;
+		}
+	}
+	
+	/**
+	 * Marsaglia's polar method, as SplittableRandom only has nextGaussian from JDK 17
+	 * @param rng the random number generator to use
+	 * @return a sample from the standard normal distribution
+	 */
+	private static double sampleGaussian(SplittableRandom rng) {
+		while (true) {
+			double x = 2.0 * rng.nextDouble() - 1.0;
+			double y = 2.0 * rng.nextDouble() - 1.0;
+			double s = x * x + y * y;
+			if (s > 0.0 && s < 1.0) return x * Math.sqrt(-2.0 * Math.log(s) / s);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+
+/**
+ * Roulette wheel selection using Walker's alias method: a solution is selected with probability proportional
+ * to its fitness, in O(1) time after an O(N) table has been built once per generation.  An excluded solution
+ * is rejected and the draw repeated, which leaves the others with their relative chances.  If the others have
+ * no fitness between them, or the excluded solution keeps being drawn, one of the others is chosen uniformly.
+ */
+public class SelectAlias extends SelectionOperator {
+	@Override
+	public Selector prepare(double[] scores) {
+		return new AliasSelector(scores);
+	}
+	
+	/**
+	 * An alias table: column i is chosen uniformly, then holds i with probability probability[i] and
+	 * alias[i] otherwise
+	 */
+	private static class AliasSelector implements Selector {
+		private static final int MAX_REJECTIONS = 64; // Draws of the excluded solution before falling back to a uniform choice
+		
+		private final double[] probability;
+		private final int[] alias;
+		private final double[] scores;
+		private final double sum;
+		
+		AliasSelector(double[] scores) {
+			int n = scores.length;
+			probability = new double[n];
+			alias = new int[n];
+			this.scores = scores;
+			double sum = 0.0;
+			for (double score : scores) sum += score;
+			this.sum = sum;
+			double[] scaled = new double[n];
+			int[] small = new int[n];
+			int[] large = new int[n];
+			int smallCount = 0;
+			int largeCount = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = sum > 0.0 ? scores[i] * n / sum : 1.0;
+				if (scaled[i] < 1.0) small[smallCount++] = i;
+				else large[largeCount++] = i;
+			}
+			while (smallCount > 0 && largeCount > 0) {
+				int less = small[--smallCount];
+				int more = large[--largeCount];
+				probability[less] = scaled[less];
+				alias[less] = more;
+				scaled[more] = scaled[more] + scaled[less] - 1.0;
+				if (scaled[more] < 1.0) small[smallCount++] = more;
+				else large[largeCount++] = more;
+			}
+			// Whatever is left is full, up to rounding
+			while (largeCount > 0) probability[large[--largeCount]] = 1.0;
+			while (smallCount > 0) probability[small[--smallCount]] = 1.0;
+		}
+		
+		@Override
+		public int select(SplittableRandom rng, int exclude) {
+			int n = probability.length;
+			if (n == 1) return 0;
+			// With no weight left outside the excluded solution the table would only ever return it
+			boolean othersWeighted = exclude < 0 || sum <= 0.0 || sum - scores[exclude] > 0.0;
+			for (int attempt = 0; othersWeighted && attempt < MAX_REJECTIONS; attempt++) {
+				int column = rng.nextInt(n);
+				int ndx = rng.nextDouble() < probability[column] ? column : alias[column];
+				if (ndx != exclude) return ndx;
+			}
+			int ndx = rng.nextInt(n - 1);
+			return ndx >= exclude ? ndx + 1 : ndx;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+import java.util.Arrays;
+
+/**
+ * Rank selection: a roulette wheel on which the least fit solution has weight 1, the next 2, and so on up to N
+ * for the fittest, so that selection does not depend on how far apart the scores are.  Solutions with equal
+ * scores share the same weight.
+ */
+public class SelectRank extends SelectRoulette {
+	@Override
+	double[] weights(double[] scores) {
+		int n = scores.length;
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(scores[a], scores[b]));
+		double[] weights = new double[n];
+		for (int r = 0; r < n; r++) {
+			int first = r;
+			while (r + 1 < n && scores[order[r + 1]] == scores[order[first]]) r++;
+			double rank = (first + r) / 2.0 + 1; // The average of the ranks of the tied solutions
+			for (int t = first; t <= r; t++) weights[order[t]] = rank;
+		}
+		return weights;
+	}
+}
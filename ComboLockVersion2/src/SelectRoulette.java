@@ -0,0 +1,67 @@
+import java.util.SplittableRandom;
+
+/**
+ * Roulette wheel selection: a solution is selected with probability proportional to its fitness.
+ * The cumulative fitness is found once per generation, and each selection is a binary search in it,
+ * taking O(log N) time.  An excluded solution is cut out of the wheel, so the others keep their
+ * relative chances.
+ */
+public class SelectRoulette extends SelectionOperator {
+	@Override
+	public Selector prepare(double[] scores) {
+		return new CumulativeSelector(weights(scores));
+	}
+	
+	/**
+	 * @param scores the fitness of each solution in the generation
+	 * @return the weights of the solutions on the wheel
+	 */
+	double[] weights(double[] scores) {
+		return scores;
+	}
+	
+	/**
+	 * A roulette wheel, stored as cumulative weights
+	 */
+	private static class CumulativeSelector implements Selector {
+		private final double[] cumulative; // cumulative[i] is the sum of the weights of solutions 0..i
+		
+		CumulativeSelector(double[] weights) {
+			cumulative = new double[weights.length];
+			double sum = 0.0;
+			for (int i = 0; i < weights.length; i++) {
+				sum += weights[i];
+				cumulative[i] = sum;
+			}
+		}
+		
+		@Override
+		public int select(SplittableRandom rng, int exclude) {
+			int n = cumulative.length;
+			if (exclude < 0 || n == 1) {
+				return find(rng.nextDouble() * cumulative[n - 1]);
+			}
+			double before = exclude == 0 ? 0.0 : cumulative[exclude - 1];
+			double excluded = cumulative[exclude] - before;
+			double selector = rng.nextDouble() * (cumulative[n - 1] - excluded);
+			if (selector > before) selector += excluded; // Skip over the excluded solution's part of the wheel
+			int ndx = find(selector);
+			if (ndx == exclude) ndx = exclude == 0 ? 1 : exclude - 1; // Only possible through rounding
+			return ndx;
+		}
+		
+		/**
+		 * @return the first index whose cumulative weight is at least selector, or the last index
+		 */
+		private int find(double selector) {
+			int lo = 0;
+			int hi = cumulative.length - 1;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cumulative[mid] >= selector) hi = mid;
+				else lo = mid + 1;
+			}
+			return lo;
+		}
+	}
+}
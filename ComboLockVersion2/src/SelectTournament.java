@@ -0,0 +1,38 @@
+import java.util.SplittableRandom;
+
+/**
+ * Tournament selection: the fittest of a few solutions chosen uniformly at random is selected, in O(size) time
+ */
+public class SelectTournament extends SelectionOperator {
+	private final int size; // The number of solutions in each tournament
+	
+	/**
+	 * @param size the number of solutions in each tournament
+	 */
+	public SelectTournament(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("A tournament needs at least one solution.");
+		}
+		this.size = size;
+	}
+	
+	@Override
+	public Selector prepare(double[] scores) {
+		return (rng, exclude) -> {
+			int n = scores.length;
+			if (n == 1) return 0;
+			int best = -1;
+			for (int t = 0; t < size; t++) {
+				int ndx = rng.nextInt(exclude < 0 ? n : n - 1);
+				if (exclude >= 0 && ndx >= exclude) ndx++; // Choose uniformly from the others
+				if (best < 0 || scores[ndx] > scores[best]) best = ndx;
+			}
+			return best;
+		};
+	}
+	
+	@Override
+	public String getName() {
+		return super.getName() + "(" + size + ")";
+	}
+}
@@ -0,0 +1,30 @@
+import java.util.SplittableRandom;
+
+/**
+ * A base class for an operator that selects the parents of the next
+ * generation from the scores of the current one.
+ */
+public abstract class SelectionOperator {
+	/**
+	 * Prepare to select from a generation; this is called once per generation
+	 * @param scores scores[i] is the fitness of the i-th solution in the generation
+	 * @return a selector, which can be used on several threads at once
+	 */
+	public abstract Selector prepare(double[] scores);
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+	
+	/**
+	 * Selects solutions from one generation
+	 */
+	public interface Selector {
+		/**
+		 * @param rng the random number generator to use
+		 * @param exclude the index of a solution that must not be selected, such as the first parent, or -1
+		 * @return the index of the selected solution; exclude itself only if it is the only solution
+		 */
+		int select(SplittableRandom rng, int exclude);
+	}
+}
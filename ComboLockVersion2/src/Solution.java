@@ -1,7 +1,5 @@
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * A class whose objects represent lock configurations
@@ -11,14 +9,45 @@ public class Solution implements Comparable<Solution> {
 	static int WHEEL_SIZE = 10; // The number of letters on each wheel
 	static String alphabet = " abcdefghijklmnopqrstuvwxyz"; // The symbols used on the wheels - note that
 															// changing this will break the system	
-	String[] wheels = new String[WHEEL_COUNT]; // The actual wheel layouts
-	ArrayList<String> words;
+	static int ALPHABET_SIZE = 27; // The number of symbols in the alphabet
+	private static final Metrics.Histogram evaluationTimes = Metrics.histogram("solution.evaluations");
+	private static final Metrics.Counter derivedEvaluations = Metrics.counter("solution.evaluations.derived");
+	
+	byte[] letters = new byte[WHEEL_COUNT * WHEEL_SIZE]; // The actual wheel layouts, as letter indices in wheel order
+	byte[] sizes = new byte[WHEEL_COUNT]; // The number of letters that have been placed on each wheel
+	int[] masks = new int[WHEEL_COUNT]; // Bit l of masks[w] is set iff letter index l is on wheel w
+	byte[] positions = new byte[WHEEL_COUNT * ALPHABET_SIZE]; // positions[w * ALPHABET_SIZE + l] is the position of
+															  // letter index l on wheel w, if the letter is present
+	int wordCount; // The number of words that can be made, once the fitness has been calculated
+	long[] wordSet; // A bitset of the dictionary ids of the words that can be made, or null if it has been released
+	int[] wordIds; // The dictionary ids of the words that can be made in increasing order, or null if they have been
+				   // released
+	NeighbourGraph neighbours; // The closest and next closest words to each of the words, or null if they have not
+							   // been found or have been released
+	int[] letterUsage; // letterUsage[w * ALPHABET_SIZE + l] is the number of words that can be made with letter index l
+					   // at position w, or null if the counts have not been found or have been released
+	int[] switchCounts; // switchCounts[(w * ALPHABET_SIZE + p) * ALPHABET_SIZE + l] is the number of times letter index l
+						// is switched with letter index p on wheel w (see getMaxLetter), or null
+	Solution basis; // A configuration this one was derived from by replacing or swapping letters, used to
+					// compute the fitness incrementally, or null
 	
 	Double score; // The fitness of the lock, or null if the fitness still needs to be calculated.
+	boolean cached; // Whether the fitness was found in the fitness cache rather than calculated
+	Double coarseScore; // The estimate of the fitness from the most frequent words, or null if it has not been calculated
+	private byte[] canonical; // The canonical layout of the wheels, or null if it has not been found since a letter was added
 
 	public Solution() {
-		for (int i = 0; i < wheels.length; i++)
-			wheels[i] = "";
+	}
+	
+	/**
+	 * Convert a letter to its index in the alphabet
+	 * @param letter the letter
+	 * @return 0 for ' ', 1 for 'a', 2 for 'b', etc., or -1 if the letter is not in the alphabet
+	 */
+	static int letterIndex(char letter) {
+		if (letter == ' ') return 0;
+		if (letter >= 'a' && letter <= 'z') return letter - 'a' + 1;
+		return -1;
 	}
 	
 	/**
@@ -27,115 +56,449 @@ public class Solution implements Comparable<Solution> {
 	 *         lock configuration
 	 */
 	double getScore() {
+		if (score == null && FitnessCache.restore(this)) {
+			// The same layout was scored before; the neighbours are found again if they are needed
+			basis = null;
+			cached = true;
+		}
 		if (score == null) {
-			//long time = System.currentTimeMillis();
-			words = Dictionary.score(this);
-			//System.out.println("Can make " + words.size());
-			double[] overallAve = new double[words.size()];
-			double aveSoFar = 0.0;
-			double adjustment = -1.0;
-			for (int i = 0; i < words.size(); i++) {
-				int closestDist = Integer.MAX_VALUE;
-				int closestNextDist = Integer.MAX_VALUE;
-				int closestWord = -1;
-				for (int j = 0; j < words.size(); j++) {
-					if (j == i) continue;
-					int wordDist = distance(i, j);
-					if (wordDist < closestDist) {
-						closestNextDist = closestDist;
-						closestDist = wordDist;
-						closestWord = j;
+			long start = Optimizer.COLLECT_METRICS ? System.nanoTime() : 0;
+			EvaluationEvent event = new EvaluationEvent();
+			event.begin();
+			if (basis != null) basis.getNeighbours(); // The basis may have come from the cache without its neighbours
+			if (basis != null && Arrays.equals(masks, basis.masks)) {
+				// Only the order of the letters has changed, so the same words can be made
+				wordSet = basis.wordSet;
+				wordIds = basis.wordIds;
+			}
+			else {
+				wordSet = WordSetCache.makeable(this);
+				wordIds = Dictionary.ids(wordSet);
+			}
+			wordCount = wordIds.length;
+			//System.out.println("Can make " + wordCount);
+			DistanceKernel kernel = DistanceKernel.prepare(this, wordIds);
+			neighbours = new NeighbourGraph(wordCount);
+			boolean derived = canDeriveFrom(basis);
+			if (derived) {
+				deriveNeighbours(kernel, basis);
+			}
+			else {
+				for (int i = 0; i < wordCount; i++) kernel.findNeighbours(i, wordIds, neighbours);
+			}
+			if (basis != null && basis.wordIds != null) deriveLetterCounts(basis);
+			basis = null;
+			score = kernel.score(neighbours);
+			FitnessCache.store(this);
+			if (Optimizer.COLLECT_METRICS) {
+				evaluationTimes.record(System.nanoTime() - start);
+				if (derived) derivedEvaluations.increment();
+			}
+			if (event.shouldCommit()) {
+				event.words = wordCount;
+				event.fitness = score;
+				event.derived = derived;
+				event.commit();
+			}
+		}
+		return score;
+	}
+	
+	/**
+	 * Determine whether the neighbours of this configuration can be derived from those of another one.
+	 * This is the case when every letter that is on a wheel in both configurations is at the same position,
+	 * so that the distance between two words that can be made on both locks is the same on both.
+	 * @param other the configuration to derive from
+	 * @return true iff other has been scored and the neighbours can be derived from it
+	 */
+	private boolean canDeriveFrom(Solution other) {
+		if (other == null || other.score == null || other.neighbours == null) return false;
+		for (int w = 0; w < WHEEL_COUNT; w++) {
+			if (sizes[w] != other.sizes[w]) return false;
+			int common = masks[w] & other.masks[w];
+			while (common != 0) {
+				int l = Integer.numberOfTrailingZeros(common);
+				if (positions[w * ALPHABET_SIZE + l] != other.positions[w * ALPHABET_SIZE + l]) return false;
+				common &= common - 1;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Find the neighbours of each word from the neighbours that were found for the other configuration.
+	 * 
+	 * The scan in DistanceKernel.findNeighbours stops at the second word within a distance of 2 if one of the first two such
+	 * words, in dictionary order, is at a distance of exactly 2, and returns those two words (closest first).
+	 * Otherwise it returns the two words with the smallest distances, ties going to the earlier word.
+	 * So a word that could be made on the other lock usually only needs to be compared with the words
+	 * that have been added.  It is scanned again if one of its neighbours can no longer be made, or if the
+	 * other scan did not record enough to decide.  Added words are scanned in full.
+	 * @param kernel the distance kernel, prepared for this lock
+	 * @param other a scored configuration that this configuration can derive from
+	 */
+	private void deriveNeighbours(DistanceKernel kernel, Solution other) {
+		int[] otherNdx = new int[wordIds.length];
+		int addedCount = 0;
+		int p = 0;
+		for (int i = 0; i < wordIds.length; i++) {
+			while (p < other.wordIds.length && other.wordIds[p] < wordIds[i]) p++;
+			if (p < other.wordIds.length && other.wordIds[p] == wordIds[i]) {
+				otherNdx[i] = p;
+			}
+			else {
+				otherNdx[i] = -1;
+				addedCount++;
+			}
+		}
+		int[] added = new int[addedCount];
+		addedCount = 0;
+		for (int i = 0; i < wordIds.length; i++) {
+			if (otherNdx[i] < 0) added[addedCount++] = i;
+		}
+		
+		for (int i = 0; i < wordIds.length; i++) {
+			int o = otherNdx[i];
+			if (o < 0 || other.neighbours.getNextDist(o) < 2 || !canMake(other.neighbours.getClosestWord(o))
+					|| !canMake(other.neighbours.getNextWord(o))) {
+				// Added, lost a neighbour, or the other scan passed close words that were not recorded
+				kernel.findNeighbours(i, wordIds, neighbours);
+				continue;
+			}
+			int cWord = other.neighbours.getClosestWord(o);
+			int cDist = other.neighbours.getClosestDist(o);
+			int nWord = other.neighbours.getNextWord(o);
+			int nDist = other.neighbours.getNextDist(o);
+			// If the other scan stopped early, added words after the point where it stopped cannot matter
+			int limit = nDist == 2 ? Math.max(cWord, nWord) : Integer.MAX_VALUE;
+			int close1 = -1, close1Dist = 0, close2 = -1, close2Dist = 0; // The first two close words by id
+			if (cDist <= 2) {
+				close1 = cWord;
+				close1Dist = cDist;
+				if (nDist <= 2) {
+					close2 = nWord;
+					close2Dist = nDist;
+					if (close2 < close1) {
+						close2 = cWord;
+						close2Dist = cDist;
+						close1 = nWord;
+						close1Dist = nDist;
 					}
-					if (wordDist < closestNextDist && j != closestWord) {
-						closestNextDist = wordDist;
+				}
+			}
+			for (int a : added) {
+				int id = wordIds[a];
+				if (id >= limit) break;
+				int wordDist = kernel.distance(i, a);
+				if (wordDist <= 2) {
+					if (close1 < 0 || id < close1) {
+						close2 = close1;
+						close2Dist = close1Dist;
+						close1 = id;
+						close1Dist = wordDist;
 					}
-					if (closestNextDist == 2) break; // Already found two words very close
+					else if (close2 < 0 || id < close2) {
+						close2 = id;
+						close2Dist = wordDist;
+					}
+				}
+				if (wordDist < cDist || (wordDist == cDist && id < cWord)) {
+					nWord = cWord;
+					nDist = cDist;
+					cWord = id;
+					cDist = wordDist;
 				}
-				double ave = (closestDist + closestNextDist) / 2.0;
-				double aveMinusClsDist = ave - closestDist;
-				if(aveMinusClsDist > adjustment){
-					adjustment = aveMinusClsDist;
+				else if (wordDist < nDist || (wordDist == nDist && id < nWord)) {
+					nWord = id;
+					nDist = wordDist;
 				}
-				overallAve[i] = 1 + ave;
 			}
-			Arrays.sort(overallAve);
-			score = 0.0;
-			if(words.size() > 0){
-				for(int i = 0; i < overallAve.length; i++){
-					aveSoFar = overallAve[i] + aveSoFar;
-					score += aveSoFar;
+			if (close2 >= 0 && Math.max(close1Dist, close2Dist) == 2) {
+				if (close2Dist < close1Dist) {
+					neighbours.set(i, close2, close2Dist, close1, close1Dist);
 				}
-
-				score -= adjustment;
-				score /= words.size();
-				//System.out.println("Score: " + score + " in " + (System.currentTimeMillis() - time) + " ms");
+				else {
+					neighbours.set(i, close1, close1Dist, close2, close2Dist);
+				}
+			}
+			else if (other.neighbours.getNextDist(o) == 2) {
+				// The scan no longer stops early, and the other scan did not see the rest of the words
+				kernel.findNeighbours(i, wordIds, neighbours);
+			}
+			else {
+				neighbours.set(i, cWord, cDist, nWord, nDist);
 			}
 		}
-		return score;
 	}
-
+	
 	/**
-	 * Get the fitness of the lock configuration
-	 * @return a score, which is currently the total weight of words that can be made from the
-	 *         lock configuration
+	 * Update the letter counts of the other configuration for the words that have been added or lost, and for the
+	 * words whose neighbours have changed.  Only the counts that the other configuration has are kept, so a
+	 * configuration that is being mutated keeps the counts up to date once they have been asked for.
+	 * @param other the configuration this one was derived from, with its words
 	 */
-	char getMaxLetter(char position, int wheel) {
-		if (words == null) {
-			//long time = System.currentTimeMillis();
-			words = Dictionary.score(this);
-			//System.out.println("Can make " + words.size());
+	private void deriveLetterCounts(Solution other) {
+		if (other.letterUsage == null && other.switchCounts == null) return;
+		if (wordIds == other.wordIds && other.letterUsage != null) {
+			letterUsage = other.letterUsage; // The same words can be made
+			if (other.switchCounts == null) return;
 		}
-		char maxLetter = '?';
-		Map<Character, Integer> letterSwitchCount = new HashMap<>();
-
-		for (int i = 0; i < words.size(); i++) {
-			int closestDist = Integer.MAX_VALUE;
-			int closestNextDist = Integer.MAX_VALUE;
-			int closestWord = -1;
-			int closestNextWord = -1;
-			for (int j = 0; j < words.size(); j++) {
-				if (j == i) continue;
-				int wordDist = distance(i, j);
-				if (wordDist < closestDist) {
-					closestNextDist = closestDist;
-					closestNextWord = closestWord;
-					closestDist = wordDist;
-					closestWord = j;
-				}
-				if (wordDist < closestNextDist && j != closestWord) {
-					closestNextDist = wordDist;
-					closestNextWord = j;
+		int[] usage = letterUsage == null && other.letterUsage != null ? other.letterUsage.clone() : null;
+		int[] switches = other.switchCounts == null || other.neighbours == null ? null : other.switchCounts.clone();
+		int i = 0;
+		int p = 0;
+		while (i < wordIds.length || p < other.wordIds.length) {
+			int id = i < wordIds.length ? wordIds[i] : Integer.MAX_VALUE;
+			int otherId = p < other.wordIds.length ? other.wordIds[p] : Integer.MAX_VALUE;
+			if (id == otherId) {
+				if (switches != null && (neighbours.getClosestWord(i) != other.neighbours.getClosestWord(p)
+						|| neighbours.getNextWord(i) != other.neighbours.getNextWord(p))) {
+					countSwitches(switches, other.neighbours, p, otherId, -1);
+					countSwitches(switches, neighbours, i, id, 1);
 				}
-				if (closestNextDist == 2) break; // Already found two words very close
+				i++;
+				p++;
 			}
-
-			char letter = words.get(i).charAt(wheel);
-			char closestLetter = words.get(closestWord).charAt(wheel);
-			char closestNextLetter = words.get(closestNextWord).charAt(wheel);
-			if(letter == position){
-				letterSwitchCount.put(closestLetter, letterSwitchCount.getOrDefault(closestLetter, 0) + 1);
-				letterSwitchCount.put(closestNextLetter, letterSwitchCount.getOrDefault(closestNextLetter, 0) + 1);
+			else if (id < otherId) { // Added
+				if (usage != null) countUsage(usage, id, 1);
+				if (switches != null) countSwitches(switches, neighbours, i, id, 1);
+				i++;
 			}
-			else if(closestLetter == position){
-				letterSwitchCount.put(letter, letterSwitchCount.getOrDefault(letter, 0) + 1);
-				letterSwitchCount.put(closestNextLetter, letterSwitchCount.getOrDefault(closestNextLetter, 0) + 1);
+			else { // Lost
+				if (usage != null) countUsage(usage, otherId, -1);
+				if (switches != null) countSwitches(switches, other.neighbours, p, otherId, -1);
+				p++;
+			}
+		}
+		if (usage != null) letterUsage = usage;
+		switchCounts = switches;
+	}
+	
+	/**
+	 * Add the letters of a word to usage counts
+	 * @param usage the counts, in the layout of letterUsage
+	 * @param id the dictionary id of the word
+	 * @param sign 1 to add the word, or -1 to remove it
+	 */
+	private static void countUsage(int[] usage, int id, int sign) {
+		for (int w = 0; w < WHEEL_COUNT; w++) {
+			usage[w * ALPHABET_SIZE + Dictionary.codes[id * WHEEL_COUNT + w]] += sign;
+		}
+	}
+	
+	/**
+	 * Add the letters that are switched when moving from a word to its closest and next closest words to switch counts.
+	 * On each wheel, the letters of the other two words are counted for the letter of the word, the letters of the
+	 * word and the next closest word for a different letter of the closest word, and the letters of the word and the
+	 * closest word for a letter of the next closest word that is different from both.
+	 * @param switches the counts, in the layout of switchCounts
+	 * @param graph the neighbour graph the word is in
+	 * @param i the index of the word in the graph
+	 * @param id the dictionary id of the word
+	 * @param sign 1 to add the word, or -1 to remove it
+	 */
+	private static void countSwitches(int[] switches, NeighbourGraph graph, int i, int id, int sign) {
+		int closest = graph.getClosestWord(i);
+		int next = graph.getNextWord(i);
+		if (next < 0) return; // Fewer than two other words can be made
+		for (int w = 0; w < WHEEL_COUNT; w++) {
+			int base = w * ALPHABET_SIZE;
+			int x = Dictionary.codes[id * WHEEL_COUNT + w];
+			int y = Dictionary.codes[closest * WHEEL_COUNT + w];
+			int z = Dictionary.codes[next * WHEEL_COUNT + w];
+			switches[(base + x) * ALPHABET_SIZE + y] += sign;
+			switches[(base + x) * ALPHABET_SIZE + z] += sign;
+			if (y != x) {
+				switches[(base + y) * ALPHABET_SIZE + x] += sign;
+				switches[(base + y) * ALPHABET_SIZE + z] += sign;
 			}
-			else if(closestNextLetter == position){
-				letterSwitchCount.put(letter, letterSwitchCount.getOrDefault(letter, 0) + 1);
-				letterSwitchCount.put(closestLetter, letterSwitchCount.getOrDefault(closestLetter, 0) + 1);
+			if (z != x && z != y) {
+				switches[(base + z) * ALPHABET_SIZE + x] += sign;
+				switches[(base + z) * ALPHABET_SIZE + y] += sign;
 			}
 		}
+	}
+	
+	/**
+	 * @param id the dictionary id of a word, or -1
+	 * @return true iff id is -1 or the word can be made on this lock
+	 */
+	private boolean canMake(int id) {
+		return id < 0 || (wordSet[id >> 6] & (1L << id)) != 0;
+	}
 
-		int count = -1;
-		for(Character l : letterSwitchCount.keySet()){
-			int letterTotal = letterSwitchCount.getOrDefault(l, 0);
-			if(count < letterTotal && l != position){
-				count = letterTotal;
+	/**
+	 * Find the letter that is most often switched with a given letter on a wheel, when moving from a word
+	 * to its closest and next closest words
+	 * @param position the letter
+	 * @param wheel the wheel in question
+	 * @return the letter other than position that is most often switched with it, ties going to the first letter
+	 *         in the alphabet, or '?' if there is none
+	 */
+	char getMaxLetter(char position, int wheel) {
+		int[] switches = getSwitchCounts();
+		int p = letterIndex(position);
+		int base = (wheel * ALPHABET_SIZE + p) * ALPHABET_SIZE;
+		int maxLetter = -1;
+		int count = 0;
+		for (int l = 0; l < ALPHABET_SIZE; l++) {
+			if (l != p && switches[base + l] > count) {
+				count = switches[base + l];
 				maxLetter = l;
 			}
 		}
-
-		return maxLetter;
+		return maxLetter < 0 ? '?' : alphabet.charAt(maxLetter);
+	}
+	
+	/**
+	 * Find the letter on a wheel that is used by the fewest words that can be made
+	 * @param wheel the wheel in question
+	 * @return the letter used by at least one word that is used by the fewest, ties going to the first letter in
+	 *         the alphabet, or '?' if no words can be made
+	 */
+	char getMinLetter(int wheel) {
+		int[] usage = getLetterUsage();
+		int minLetter = -1;
+		int count = Integer.MAX_VALUE;
+		for (int l = 0; l < ALPHABET_SIZE; l++) {
+			int letterTotal = usage[wheel * ALPHABET_SIZE + l];
+			if (letterTotal > 0 && letterTotal < count) {
+				count = letterTotal;
+				minLetter = l;
+			}
+		}
+		return minLetter < 0 ? '?' : alphabet.charAt(minLetter);
+	}
+	
+	/**
+	 * Return the number of words that can be made with each letter on each wheel, counting them if they are not known
+	 * @return the counts, in the layout of letterUsage; the array is shared and must not be modified
+	 */
+	int[] getLetterUsage() {
+		if (letterUsage == null) {
+			int[] usage = new int[WHEEL_COUNT * ALPHABET_SIZE];
+			for (int id : getWordIds()) countUsage(usage, id, 1);
+			letterUsage = usage;
+		}
+		return letterUsage;
+	}
+	
+	/**
+	 * Return the number of times each letter is switched with each other letter on each wheel, counting them if they
+	 * are not known
+	 * @return the counts, in the layout of switchCounts; the array is shared and must not be modified
+	 */
+	int[] getSwitchCounts() {
+		if (switchCounts == null) {
+			NeighbourGraph graph = getNeighbours();
+			int[] ids = getWordIds();
+			int[] switches = new int[WHEEL_COUNT * ALPHABET_SIZE * ALPHABET_SIZE];
+			for (int i = 0; i < graph.size(); i++) countSwitches(switches, graph, i, ids[i], 1);
+			switchCounts = switches;
+		}
+		return switchCounts;
+	}
+	
+	/**
+	 * Return the neighbour graph of the words that can be made, finding it again if it has been released
+	 * @return the neighbour graph
+	 */
+	NeighbourGraph getNeighbours() {
+		if (score == null) {
+			getScore();
+		}
+		else if (neighbours == null) {
+			int[] ids = getWordIds();
+			DistanceKernel kernel = DistanceKernel.prepare(this, ids);
+			neighbours = new NeighbourGraph(ids.length);
+			for (int i = 0; i < ids.length; i++) kernel.findNeighbours(i, ids, neighbours);
+		}
+		return neighbours;
+	}
+	
+	/**
+	 * Return the dictionary ids of the words that can be made, finding them again if they have been released
+	 * @return the ids in increasing order; the array is shared and must not be modified
+	 */
+	int[] getWordIds() {
+		if (score == null) {
+			getScore();
+		}
+		if (wordIds == null) {
+			wordSet = WordSetCache.makeable(this);
+			wordIds = Dictionary.ids(wordSet);
+		}
+		return wordIds;
+	}
+	
+	/**
+	 * @return the number of words that can be made
+	 */
+	int getWordCount() {
+		if (score != null) return wordCount;
+		// Counting the words does not need the neighbour search
+		if (wordSet == null) wordSet = WordSetCache.makeable(this);
+		return Dictionary.count(wordSet);
+	}
+	
+	/**
+	 * Get an estimate of the fitness, calculated in the same way as the fitness but only from the most
+	 * frequent words (see Dictionary.getTier).  This is much cheaper than the fitness.
+	 * @return the estimate
+	 */
+	double getCoarseScore() {
+		if (coarseScore == null) {
+			if (wordSet == null) wordSet = WordSetCache.makeable(this);
+			long[] tier = Dictionary.getTier();
+			long[] tierSet = new long[tier.length];
+			for (int b = 0; b < tier.length; b++) tierSet[b] = wordSet[b] & tier[b];
+			int[] ids = Dictionary.ids(tierSet);
+			DistanceKernel kernel = DistanceKernel.prepare(this, ids);
+			NeighbourGraph graph = new NeighbourGraph(ids.length);
+			for (int i = 0; i < ids.length; i++) kernel.findNeighbours(i, ids, graph);
+			coarseScore = kernel.score(graph);
+		}
+		return coarseScore;
+	}
+	
+	/**
+	 * Release the neighbour graph and the switch counts, which are only needed while the solution is being mutated.
+	 * The score is kept, and the graph is found again if it is needed later.
+	 */
+	void releaseNeighbours() {
+		neighbours = null;
+		switchCounts = null;
+	}
+	
+	/**
+	 * Release the words that can be made, the neighbour graph and the letter counts, keeping only the score and the number of words.
+	 * They are found again if they are needed later.
+	 */
+	void releaseWords() {
+		neighbours = null;
+		wordSet = null;
+		wordIds = null;
+		letterUsage = null;
+		switchCounts = null;
+	}
+	
+	/**
+	 * Copy the layout and the fitness, so that the copy can be handed to another thread.
+	 * The words that can be made are shared, since they are never changed once they have been found.
+	 * @return the copy, without a neighbour graph
+	 */
+	Solution copy() {
+		Solution retVal = new Solution();
+		System.arraycopy(letters, 0, retVal.letters, 0, letters.length);
+		System.arraycopy(sizes, 0, retVal.sizes, 0, sizes.length);
+		System.arraycopy(masks, 0, retVal.masks, 0, masks.length);
+		System.arraycopy(positions, 0, retVal.positions, 0, positions.length);
+		retVal.wordCount = wordCount;
+		retVal.wordSet = wordSet;
+		retVal.wordIds = wordIds;
+		retVal.letterUsage = letterUsage;
+		retVal.score = score;
+		return retVal;
 	}
 	
 	/**
@@ -145,7 +508,8 @@ public class Solution implements Comparable<Solution> {
 	 * @return true iff wheel has this letter
 	 */
 	boolean hasLetter(int wheel, char letter) {
-		return wheels[wheel].indexOf(letter) >= 0;
+		int ndx = letterIndex(letter);
+		return ndx >= 0 && (masks[wheel] & (1 << ndx)) != 0;
 	}
 	
 	/**
@@ -154,9 +518,63 @@ public class Solution implements Comparable<Solution> {
 	 * @param letter an integer representation of the letter, with 0 = ' ', 1 = 'a', 2 = 'b', etc.
 	 */
 	void addLetter(int wheel, char letter) {
-		if (alphabet.indexOf(letter) < 0) throw new IllegalArgumentException("Unknown letter: " + letter);
-		wheels[wheel] += letter;
+		int ndx = letterIndex(letter);
+		if (ndx < 0) throw new IllegalArgumentException("Unknown letter: " + letter);
+		if (sizes[wheel] == WHEEL_SIZE) throw new IllegalStateException("Wheel " + wheel + " is full");
+		if ((masks[wheel] & (1 << ndx)) == 0) {
+			masks[wheel] |= 1 << ndx;
+			positions[wheel * ALPHABET_SIZE + ndx] = sizes[wheel];
+		}
+		letters[wheel * WHEEL_SIZE + sizes[wheel]] = (byte) ndx;
+		sizes[wheel]++;
+		changed();
+	}
+	
+	/**
+	 * Put a letter in place of the letter at a position of a wheel
+	 * @param wheel the wheel in question in range [0..wheel count)
+	 * @param position the position in range [0..size of the wheel)
+	 * @param letter the new letter, which must not be elsewhere on the wheel
+	 */
+	void setLetter(int wheel, int position, char letter) {
+		int ndx = letterIndex(letter);
+		if (ndx < 0) throw new IllegalArgumentException("Unknown letter: " + letter);
+		int old = letters[wheel * WHEEL_SIZE + position];
+		masks[wheel] = (masks[wheel] & ~(1 << old)) | (1 << ndx);
+		positions[wheel * ALPHABET_SIZE + ndx] = (byte) position;
+		letters[wheel * WHEEL_SIZE + position] = (byte) ndx;
+		changed();
+	}
+	
+	/**
+	 * Exchange the letters at two positions of a wheel
+	 * @param wheel the wheel in question in range [0..wheel count)
+	 * @param pos1 the first position
+	 * @param pos2 the second position
+	 */
+	void swapLetters(int wheel, int pos1, int pos2) {
+		byte letter1 = letters[wheel * WHEEL_SIZE + pos1];
+		byte letter2 = letters[wheel * WHEEL_SIZE + pos2];
+		letters[wheel * WHEEL_SIZE + pos1] = letter2;
+		letters[wheel * WHEEL_SIZE + pos2] = letter1;
+		positions[wheel * ALPHABET_SIZE + letter1] = (byte) pos2;
+		positions[wheel * ALPHABET_SIZE + letter2] = (byte) pos1;
+		changed();
+	}
+	
+	/**
+	 * Forget everything that was calculated from the layout, after the layout has changed
+	 */
+	private void changed() {
 		score = null;
+		cached = false;
+		coarseScore = null;
+		canonical = null;
+		wordSet = null;
+		wordIds = null;
+		neighbours = null;
+		letterUsage = null;
+		switchCounts = null;
 	}
 	
 	/**
@@ -166,7 +584,91 @@ public class Solution implements Comparable<Solution> {
 	 * @return
 	 */
 	String getWheel(int wheel) {
-		return wheels[wheel];
+		char[] wheelLetters = new char[sizes[wheel]];
+		for (int i = 0; i < wheelLetters.length; i++) {
+			wheelLetters[i] = alphabet.charAt(letters[wheel * WHEEL_SIZE + i]);
+		}
+		return new String(wheelLetters);
+	}
+	
+	/**
+	 * Return the letter at a position on a wheel
+	 * @param wheel the wheel in question
+	 * @param position the position on the wheel in range [0..wheel size)
+	 * @return the letter at that position
+	 */
+	char getLetter(int wheel, int position) {
+		return alphabet.charAt(letters[wheel * WHEEL_SIZE + position]);
+	}
+	
+	/**
+	 * Return the position of a letter on a wheel
+	 * @param wheel the wheel in question
+	 * @param letter the letter to look for
+	 * @return the position of the letter, or -1 if the wheel does not have the letter
+	 */
+	int getPosition(int wheel, char letter) {
+		if (!hasLetter(wheel, letter)) return -1;
+		return positions[wheel * ALPHABET_SIZE + letterIndex(letter)];
+	}
+	
+	/**
+	 * Return the set of letters on a wheel
+	 * @param wheel the wheel in question
+	 * @return a mask in which bit l is set iff the letter with index l is on the wheel
+	 */
+	int getMask(int wheel) {
+		return masks[wheel];
+	}
+	
+	/**
+	 * Return the number of letters of the alphabet that are not on a wheel
+	 * @param wheel the wheel in question
+	 * @return the number of letters that could be added to the wheel
+	 */
+	int getMissingCount(int wheel) {
+		return ALPHABET_SIZE - Integer.bitCount(masks[wheel]);
+	}
+	
+	/**
+	 * Choose a letter that is on a wheel uniformly at random
+	 * @param wheel the wheel in question, which must not be empty
+	 * @param rng the random number generator to use
+	 * @return the letter
+	 */
+	char getRandomLetter(int wheel, SplittableRandom rng) {
+		return selectLetter(masks[wheel], rng.nextInt(Integer.bitCount(masks[wheel])));
+	}
+	
+	/**
+	 * Choose a letter that is not on a wheel uniformly at random
+	 * @param wheel the wheel in question
+	 * @param rng the random number generator to use
+	 * @return the letter, or '?' if every letter is on the wheel
+	 */
+	char getRandomMissingLetter(int wheel, SplittableRandom rng) {
+		int missing = getMissingCount(wheel);
+		if (missing == 0) return '?';
+		return getMissingLetter(wheel, rng.nextInt(missing));
+	}
+	
+	/**
+	 * @param wheel the wheel in question
+	 * @param k the rank of the letter, in range [0..getMissingCount(wheel))
+	 * @return the letter that is not on the wheel with the k-th smallest index
+	 */
+	char getMissingLetter(int wheel, int k) {
+		return selectLetter(~masks[wheel] & ((1 << ALPHABET_SIZE) - 1), k);
+	}
+	
+	/**
+	 * @param mask a set of letter indices, with bit l set iff letter index l is in the set
+	 * @param k the rank of the letter to select, in range [0..size of the set)
+	 * @return the letter with the k-th smallest index in the set
+	 */
+	private static char selectLetter(int mask, int k) {
+		for (; k > 0; k--) mask &= mask - 1;
+		return alphabet.charAt(Integer.numberOfTrailingZeros(mask));
 	}
 
 	/**
@@ -175,7 +677,7 @@ public class Solution implements Comparable<Solution> {
 	 * @return the number of letters that have been specified for the wheel
 	 */
 	int getWheelSize(int wheel) {
-		return wheels[wheel].length();
+		return sizes[wheel];
 	}
 	
 	/**
@@ -185,19 +687,81 @@ public class Solution implements Comparable<Solution> {
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
 		sb.append("From: ");
-		sb.append(words.size());
+		sb.append(getWordCount());
 		sb.append(" words. ");
 		
-		for (int w = 0; w < wheels.length; w++) {
+		for (int w = 0; w < WHEEL_COUNT; w++) {
 			sb.append("/");
-			sb.append(wheels[w]);
+			sb.append(getWheel(w));
 			sb.append("/");
 		}
 		return sb.toString();
 	}
 	
 	/**
-	 * @return true iff the two solutions have exactly the same letters selected for each wheel
+	 * Return the canonical layout of the wheels.  The fitness only depends on the circular distances between
+	 * the letters on each wheel, so rotating a wheel or reversing its direction does not change it.  The
+	 * canonical layout of a wheel is the smallest of its rotations in either direction, comparing letter
+	 * indices in order.
+	 * @return the canonical layout, in the form of letters; it is shared and must not be modified
+	 */
+	byte[] getCanonicalLetters() {
+		if (canonical == null) {
+			byte[] retVal = new byte[letters.length];
+			for (int w = 0; w < WHEEL_COUNT; w++) {
+				int base = w * WHEEL_SIZE;
+				int n = sizes[w];
+				int bestStart = 0;
+				int bestStep = 1;
+				for (int start = 0; start < n; start++) {
+					for (int step : new int[] {1, n - 1}) { // Go forwards, then backwards
+						int cmp = 0;
+						for (int k = 0; k < n && cmp == 0; k++) {
+							cmp = letters[base + (start + k * step) % n] - letters[base + (bestStart + k * bestStep) % n];
+						}
+						if (cmp < 0) {
+							bestStart = start;
+							bestStep = step;
+						}
+					}
+				}
+				for (int k = 0; k < n; k++) {
+					retVal[base + k] = letters[base + (bestStart + k * bestStep) % n];
+				}
+			}
+			canonical = retVal;
+		}
+		return canonical;
+	}
+	
+	/**
+	 * Return this configuration with its wheels in their canonical layout
+	 * @return this, if it is already canonical, or an equal configuration with the canonical layout, which shares
+	 *         the fitness, the words and the neighbours if they have been found
+	 */
+	Solution canonicalize() {
+		byte[] canonicalLetters = getCanonicalLetters();
+		if (Arrays.equals(canonicalLetters, letters)) return this;
+		Solution retVal = new Solution();
+		for (int w = 0; w < WHEEL_COUNT; w++) {
+			for (int i = 0; i < sizes[w]; i++) {
+				retVal.addLetter(w, alphabet.charAt(canonicalLetters[w * WHEEL_SIZE + i]));
+			}
+		}
+		retVal.wordCount = wordCount;
+		retVal.wordSet = wordSet;
+		retVal.wordIds = wordIds;
+		retVal.neighbours = neighbours;
+		retVal.letterUsage = letterUsage;
+		retVal.switchCounts = switchCounts;
+		retVal.basis = basis;
+		retVal.score = score;
+		return retVal;
+	}
+	
+	/**
+	 * @return true iff the two solutions have the same letters in the same circular order on each wheel,
+	 *         in either direction, so that they have the same fitness
 	 */
 	@Override
 	public boolean equals(Object obj) {
@@ -205,61 +769,21 @@ public class Solution implements Comparable<Solution> {
 		if (this == obj) return true;
 		if (this.getClass() != obj.getClass()) return false;
 		Solution that = (Solution) obj;
-		for (int w = 0; w < wheels.length; w++) {
-			if (!this.wheels[w].equals(that.wheels[w])) return false;
+		for (int w = 0; w < WHEEL_COUNT; w++) {
+			if (this.masks[w] != that.masks[w]) return false;
 		}
-		return true;
+		return Arrays.equals(this.sizes, that.sizes) && Arrays.equals(this.getCanonicalLetters(), that.getCanonicalLetters());
 	}
 
 	/**
-	 * @return an appropriate hash code for the lock
+	 * @return an appropriate hash code for the lock, which is the same for equal locks
 	 */
 	@Override
 	public int hashCode() {
-		int retVal = 0;
-		for (int w = 0; w < wheels.length; w++) {
-			retVal = retVal * 31 + wheels[w].hashCode();
-		}
-		return retVal;
+		return Arrays.hashCode(getCanonicalLetters());
 	}
 	
 	
-	/** 
-	 * Return distance of words using current lock configuration
-	 * 
-	 * @param word1Ndx
-	 * @param word2Ndx
-	 * @return
-	 */
-	int distance(int word1Ndx, int word2Ndx) {
-		String word1 = words.get(word1Ndx);
-		String word2 = words.get(word2Ndx);
-		int retVal = 0;
-		for (int i = 0; i < word1.length(); i++) {
-			retVal += distance(i, word1.charAt(i), word2.charAt(i));
-		}
-
-		return retVal;
-	}
-	
-	/** 
-	 * Return number of turns needed to move from one character to another
-	 * on a particular wheel
-	 * @param wheel Which wheel we are turning
-	 * @param c1 The starting character
-	 * @param c2 The ending character
-	 * @return the number of moves needed
-	 */
-	private int distance(int wheel, char c1, char c2) {
-		int pos1 = wheels[wheel].indexOf(c1);
-		int pos2 = wheels[wheel].indexOf(c2);
-		
-		int steps = Math.abs(pos1-pos2);
-		steps = Math.min(steps, Math.abs((wheels[wheel].length() + pos1) - pos2));
-		steps = Math.min(steps, Math.abs((wheels[wheel].length() + pos2) - pos1));
-		return steps;
-	}
-	
 	@Override
 	public int compareTo(Solution that) {
 		if (this.getScore() > that.getScore()) return -1;
@@ -0,0 +1,29 @@
+/**
+ * A move that exchanges the letters at two positions on a wheel
+ */
+public class SwapMove extends Move {
+	private final int wheel;
+	private final int pos1;
+	private final int pos2;
+	
+	/**
+	 * @param wheel the wheel
+	 * @param pos1 the first position
+	 * @param pos2 the second position
+	 */
+	SwapMove(int wheel, int pos1, int pos2) {
+		this.wheel = wheel;
+		this.pos1 = pos1;
+		this.pos2 = pos2;
+	}
+	
+	@Override
+	void apply(Solution solution) {
+		solution.swapLetters(wheel, pos1, pos2);
+	}
+	
+	@Override
+	void undo(Solution solution) {
+		solution.swapLetters(wheel, pos1, pos2);
+	}
+}
@@ -0,0 +1,101 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the words that can be made on a lock, keyed by the set of letters on each wheel.
+ * The order of the letters on a wheel does not change which words can be made, so locks that differ only
+ * by a permutation of their wheels share an entry.  The least recently used entry is evicted when the
+ * cache is full.
+ */
+public class WordSetCache {
+	static int CAPACITY = 4096; // The maximum number of letter sets to remember
+	
+	private static long hits;
+	private static long misses;
+	
+	static {
+		Metrics.gauge("wordSetCache.hits", WordSetCache::getHits);
+		Metrics.gauge("wordSetCache.misses", WordSetCache::getMisses);
+	}
+	private static final Map<Key, long[]> cache = new LinkedHashMap<Key, long[]>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, long[]> eldest) {
+			return size() > CAPACITY;
+		}
+	};
+	
+	/**
+	 * Return the words in the dictionary that can be made with a given lock configuration
+	 * @param solution the lock configuration
+	 * @return a bitset of word ids, as described in Dictionary.makeable.  The bitset is shared and must not be modified.
+	 */
+	static long[] makeable(Solution solution) {
+		return makeable(solution.masks);
+	}
+	
+	/**
+	 * Return the words in the dictionary that can be made on a lock with given sets of letters
+	 * @param masks bit l of masks[w] is set iff letter index l is on wheel w
+	 * @return a bitset of word ids, as described in Dictionary.makeable.  The bitset is shared and must not be modified.
+	 */
+	static long[] makeable(int[] masks) {
+		Key key = new Key(masks.clone());
+		synchronized (cache) {
+			long[] wordSet = cache.get(key);
+			if (wordSet != null) {
+				hits++;
+				return wordSet;
+			}
+			misses++;
+		}
+		// Scan outside the lock so that threads missing on different letter sets do not queue behind each other.
+		// Two threads missing on the same letter sets both scan, and the first result to be stored is kept.
+		long[] wordSet = Dictionary.makeable(masks);
+		synchronized (cache) {
+			long[] stored = cache.putIfAbsent(key, wordSet);
+			return stored != null ? stored : wordSet;
+		}
+	}
+	
+	/**
+	 * @return the number of lookups that found their letter sets in the cache
+	 */
+	static long getHits() {
+		synchronized (cache) {
+			return hits;
+		}
+	}
+	
+	/**
+	 * @return the number of lookups that had to scan the dictionary
+	 */
+	static long getMisses() {
+		synchronized (cache) {
+			return misses;
+		}
+	}
+	
+	/**
+	 * The letter sets of a lock, one mask per wheel
+	 */
+	private static class Key {
+		private final int[] masks;
+		private final int hash;
+		
+		Key(int[] masks) {
+			this.masks = masks;
+			this.hash = Arrays.hashCode(masks);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(masks, ((Key) obj).masks);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the cluster on localhost: every type of message survives the wire format, a coordinator routes
+ * migrants between two workers, and a worker keeps evolving when the coordinator goes away.  Each coordinator
+ * runs in a process of its own on an ephemeral port, so that it can be killed.
+ * 
+ * Run with the main classes on the class path, from a directory with the word list; the exit status is 1
+ * if a check fails.
+ */
+public class ClusterTest {
+	static int TIMEOUT = 60; // The time in seconds to wait for anything to happen
+	
+	private static int failures;
+	
+	public static void main(String[] args) throws Exception {
+		checkRoundTrip();
+		checkRouting();
+		checkCoordinatorLoss();
+		System.out.println(failures == 0 ? "All cluster checks passed" : failures + " cluster checks failed");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+	
+	/**
+	 * Write and read back a message of each type
+	 */
+	private static void checkRoundTrip() throws IOException {
+		RandomStreams streams = new RandomStreams(Optimizer.SEED);
+		Solution[] solutions = new Solution[3];
+		for (int i = 0; i < solutions.length; i++) {
+			solutions[i] = Optimizer.initOps[i % Optimizer.initOps.length].run(streams.forInitialization(i));
+		}
+		ClusterMessage[] messages = {ClusterMessage.of(ClusterMessage.HELLO, 3),
+				ClusterMessage.of(ClusterMessage.MIGRANTS, 1, solutions),
+				ClusterMessage.of(ClusterMessage.BEST, 2, solutions[0])};
+		for (ClusterMessage message : messages) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			message.write(new DataOutputStream(bytes));
+			ClusterMessage copy = ClusterMessage.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			check(sameMessage(message, copy), "message of type " + message.type + " survives the wire format");
+		}
+		byte[] unknown = {9, (byte) Solution.WHEEL_COUNT, (byte) Solution.WHEEL_SIZE, 0, 0, 0, 0, 0, 0};
+		try {
+			ClusterMessage.read(new DataInputStream(new ByteArrayInputStream(unknown)));
+			check(false, "a message of an unknown type is rejected");
+		} catch (IOException e) {
+			check(true, "a message of an unknown type is rejected");
+		}
+	}
+	
+	/**
+	 * Join two workers to a coordinator and check that each one's migrants reach the other
+	 */
+	private static void checkRouting() throws Exception {
+		Coordinator coordinator = new Coordinator();
+		try {
+			Recorder first = new Recorder();
+			Recorder second = new Recorder();
+			ClusterLink firstLink = first.connect(coordinator.port, 0);
+			check(coordinator.await("Island 0 joined"), "the first worker joins");
+			ClusterLink secondLink = second.connect(coordinator.port, 1);
+			check(coordinator.await("Island 1 joined"), "the second worker joins");
+			RandomStreams streams = new RandomStreams(Optimizer.SEED);
+			Solution migrant = Optimizer.initOps[0].run(streams.forInitialization(0));
+			ClusterMessage sent = ClusterMessage.of(ClusterMessage.MIGRANTS, 0, migrant);
+			firstLink.send(sent);
+			ClusterMessage received = second.inbox.poll(TIMEOUT, TimeUnit.SECONDS);
+			check(received != null && sameMessage(sent, received), "migrants from the first worker reach the second");
+			sent = ClusterMessage.of(ClusterMessage.MIGRANTS, 1, Optimizer.initOps[1].run(streams.forInitialization(1)));
+			secondLink.send(sent);
+			received = first.inbox.poll(TIMEOUT, TimeUnit.SECONDS);
+			check(received != null && sameMessage(sent, received), "migrants from the second worker reach the first");
+			check(first.inbox.isEmpty() && second.inbox.isEmpty(), "migrants are not sent back to their sender");
+			firstLink.close();
+			secondLink.close();
+			check(coordinator.process.waitFor(TIMEOUT, TimeUnit.SECONDS), "the coordinator stops when the workers leave");
+		} finally {
+			coordinator.process.destroyForcibly();
+		}
+	}
+	
+	/**
+	 * Run a worker, kill its coordinator once it has joined, and check that the worker finishes its generations
+	 */
+	private static void checkCoordinatorLoss() throws Exception {
+		Coordinator coordinator = new Coordinator();
+		try {
+			Optimizer.generations = 4;
+			Optimizer.populationSize = 6;
+			Optimizer.migrationInterval = 1;
+			Optimizer.islandMutationMaxTimes = new int[][] {{5, 5, 5, 5, 5}};
+			Solution[] best = new Solution[1];
+			Thread worker = new Thread(() -> best[0] = new ClusterWorker(0, new InetSocketAddress("localhost", coordinator.port)).run());
+			worker.start();
+			check(coordinator.await("Island 0 joined"), "the worker joins");
+			coordinator.process.destroyForcibly();
+			worker.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+			check(!worker.isAlive() && best[0] != null && best[0].getScore() > 0.0,
+					"the worker finishes its generations without the coordinator");
+		} finally {
+			coordinator.process.destroyForcibly();
+		}
+	}
+	
+	/**
+	 * @return true iff two messages have the same type, island, layouts and scores
+	 */
+	private static boolean sameMessage(ClusterMessage a, ClusterMessage b) {
+		if (a.type != b.type || a.island != b.island || a.solutions.length != b.solutions.length) return false;
+		for (int i = 0; i < a.solutions.length; i++) {
+			if (!a.solutions[i].equals(b.solutions[i])) return false;
+			if (Double.doubleToLongBits(a.scores[i]) != Double.doubleToLongBits(b.scores[i])) return false;
+		}
+		return true;
+	}
+	
+	private static void check(boolean passed, String description) {
+		System.out.println((passed ? "PASS " : "FAIL ") + description);
+		if (!passed) failures++;
+	}
+	
+	/**
+	 * A coordinator running in a process of its own, whose output is collected line by line
+	 */
+	private static class Coordinator {
+		final Process process;
+		final int port;
+		private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+		
+		Coordinator() throws IOException, InterruptedException {
+			String java = System.getProperty("java.home") + "/bin/java";
+			process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ClusterCoordinator", "0")
+					.redirectErrorStream(true).start();
+			Thread reader = new Thread(() -> {
+				try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+					String line;
+					while ((line = in.readLine()) != null) lines.add(line);
+				} catch (IOException e) {
+					// The coordinator has gone
+				}
+			});
+			reader.setDaemon(true);
+			reader.start();
+			String first = lines.poll(TIMEOUT, TimeUnit.SECONDS);
+			if (first == null || !first.startsWith("Coordinator listening on port ")) {
+				throw new IOException("The coordinator did not start: " + first);
+			}
+			port = Integer.parseInt(first.substring("Coordinator listening on port ".length()));
+		}
+		
+		/**
+		 * @param prefix the start of the line to wait for
+		 * @return true iff the coordinator printed such a line in time
+		 */
+		boolean await(String prefix) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+			String line;
+			while ((line = lines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null) {
+				if (line.startsWith(prefix)) return true;
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * A stand-in worker that records the migrants it receives
+	 */
+	private static class Recorder implements ClusterLink.Handler {
+		final BlockingQueue<ClusterMessage> inbox = new LinkedBlockingQueue<>();
+		
+		ClusterLink connect(int port, int island) throws IOException {
+			ClusterLink link = new ClusterLink(new Socket("localhost", port), this);
+			link.send(ClusterMessage.of(ClusterMessage.HELLO, island));
+			return link;
+		}
+		
+		@Override
+		public void received(ClusterLink link, ClusterMessage message) {
+			inbox.add(message);
+		}
+		
+		@Override
+		public void closed(ClusterLink link) {
+		}
+	}
+}
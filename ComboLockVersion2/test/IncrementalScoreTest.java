@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that incremental rescoring gives the same results as scoring from scratch.  Locks from the
+ * initialization operators are changed by chains of random ReplaceMoves and SwapMoves, each lock being
+ * derived from the one before, so most of them get their neighbours and letter counts from their basis.
+ * The score, word count, letter usage and switch counts of every lock are compared with those of a fresh
+ * copy of its layout, found by a full scan.
+ * 
+ * Run with the main classes on the class path, from a directory with the word list; the exit status is 1
+ * if any lock differs.
+ */
+public class IncrementalScoreTest {
+	/**
+	 * @param args the number of chains, 100 by default, and the number of moves in each, 50 by default
+	 */
+	public static void main(String[] args) {
+		int chains = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int chainLength = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		Optimizer.COLLECT_METRICS = true; // To count the locks that were scored by derivation
+		RandomStreams streams = new RandomStreams(Optimizer.SEED);
+		int compared = 0;
+		int countsDerived = 0;
+		int mismatches = 0;
+		for (int k = 0; k < chains; k++) {
+			SplittableRandom rng = streams.forInitialization(k);
+			Solution solution = Optimizer.initOps[k % Optimizer.initOps.length].run(rng);
+			solution.getScore();
+			solution.getLetterUsage(); // So that the locks derived from it keep their counts up to date
+			solution.getSwitchCounts();
+			for (int m = 0; m < chainLength; m++) {
+				Move move = randomMove(solution, rng);
+				if (move == null) continue;
+				Solution child = solution.copy();
+				move.apply(child);
+				child.basis = solution;
+				child.getScore();
+				if (child.letterUsage != null && child.switchCounts != null) countsDerived++;
+				compared++;
+				if (!matches(child)) mismatches++;
+				solution = child;
+			}
+		}
+		long derived = Metrics.counter("solution.evaluations.derived").get();
+		System.out.println(compared + " locks compared, " + derived + " with derived neighbours, " + countsDerived
+				+ " with derived letter counts, " + mismatches + " mismatches");
+		if (mismatches > 0 || derived == 0 || countsDerived == 0) System.exit(1);
+	}
+	
+	/**
+	 * @param solution the lock configuration
+	 * @param rng the random number generator to use
+	 * @return a random replacement or swap of letters on a random wheel, or null if the wheel has no move of
+	 *         the chosen kind
+	 */
+	private static Move randomMove(Solution solution, SplittableRandom rng) {
+		int wheel = rng.nextInt(Solution.WHEEL_COUNT);
+		int size = solution.getWheelSize(wheel);
+		if (rng.nextBoolean()) {
+			if (solution.getMissingCount(wheel) == 0) return null;
+			return new ReplaceMove(wheel, rng.nextInt(size), solution.getRandomMissingLetter(wheel, rng));
+		}
+		if (size < 2) return null;
+		int pos1 = rng.nextInt(size);
+		int pos2 = (pos1 + 1 + rng.nextInt(size - 1)) % size;
+		return new SwapMove(wheel, pos1, pos2);
+	}
+	
+	/**
+	 * Compare a lock that has been scored with a fresh copy of its layout
+	 * @param solution the lock configuration
+	 * @return true iff the score, the words and the letter counts are the same
+	 */
+	private static boolean matches(Solution solution) {
+		Solution fresh = new Solution();
+		for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+			for (char letter : solution.getWheel(w).toCharArray()) fresh.addLetter(w, letter);
+		}
+		// The fresh copy may take its score from the fitness cache, so the score is found again by a full scan
+		int[] wordIds = Dictionary.ids(Dictionary.makeable(fresh));
+		DistanceKernel kernel = new DistanceKernel();
+		kernel.encode(fresh, wordIds);
+		NeighbourGraph graph = new NeighbourGraph(wordIds.length);
+		for (int i = 0; i < wordIds.length; i++) kernel.findNeighbours(i, wordIds, graph);
+		double expected = kernel.score(graph);
+		boolean same = Double.doubleToLongBits(solution.getScore()) == Double.doubleToLongBits(expected)
+				&& solution.getWordCount() == wordIds.length
+				&& Arrays.equals(solution.getLetterUsage(), fresh.getLetterUsage())
+				&& Arrays.equals(solution.getSwitchCounts(), fresh.getSwitchCounts());
+		if (!same) {
+			System.out.println("Mismatch: " + expected + " " + solution.getScore() + " " + solution);
+		}
+		return same;
+	}
+}
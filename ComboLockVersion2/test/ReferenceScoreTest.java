@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that scores are bit for bit the same as those of the original fitness function, which kept the
+ * wheels as Strings, found the words with indexOf, and compared every pair of words.  Random locks from the
+ * initialization operators and chains of locks mutated from them are scored both ways.
+ * 
+ * Run with the main classes on the class path, from a directory with the word list; the exit status is 1
+ * if any lock differs.
+ */
+public class ReferenceScoreTest {
+	/**
+	 * @param args the number of chains, 50 by default, and the number of mutations in each, 20 by default
+	 */
+	public static void main(String[] args) {
+		int chains = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int chainLength = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		RandomStreams streams = new RandomStreams(Optimizer.SEED);
+		int compared = 0;
+		int mismatches = 0;
+		for (int k = 0; k < chains; k++) {
+			SplittableRandom rng = streams.forInitialization(k);
+			Solution solution = Optimizer.initOps[k % Optimizer.initOps.length].run(rng);
+			compared++;
+			if (!matches(solution)) mismatches++;
+			for (int m = 0; m < chainLength; m++) {
+				MutationOperator mutation = Optimizer.mutationOperators[rng.nextInt(Optimizer.mutationOperators.length)];
+				Solution child = mutation.run(solution, rng);
+				if (child.basis == null) continue; // The operator had nothing to propose
+				compared++;
+				if (!matches(child)) mismatches++;
+				solution = child;
+			}
+		}
+		System.out.println(compared + " locks compared, " + mismatches + " mismatches");
+		if (mismatches > 0) System.exit(1);
+	}
+	
+	/**
+	 * @param solution the lock configuration
+	 * @return true iff its score is the same as the original fitness function's
+	 */
+	private static boolean matches(Solution solution) {
+		String[] wheels = new String[Solution.WHEEL_COUNT];
+		for (int w = 0; w < wheels.length; w++) wheels[w] = solution.getWheel(w);
+		double expected = referenceScore(wheels);
+		if (Double.doubleToLongBits(solution.getScore()) != Double.doubleToLongBits(expected)) {
+			System.out.println("Mismatch: " + expected + " " + solution.getScore() + " " + solution);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * The original fitness function
+	 * @param wheels the letters on each wheel, in order
+	 * @return the score
+	 */
+	private static double referenceScore(String[] wheels) {
+		ArrayList<String> words = new ArrayList<>();
+		for (String s : Dictionary.rawWords) {
+			boolean ok = true;
+			for (int j = 0; ok && j < s.length(); j++) {
+				if (wheels[j].indexOf(s.charAt(j)) < 0) ok = false;
+			}
+			if (ok) words.add(s);
+		}
+		double[] overallAve = new double[words.size()];
+		double aveSoFar = 0.0;
+		double adjustment = -1.0;
+		for (int i = 0; i < words.size(); i++) {
+			int closestDist = Integer.MAX_VALUE;
+			int closestNextDist = Integer.MAX_VALUE;
+			int closestWord = -1;
+			for (int j = 0; j < words.size(); j++) {
+				if (j == i) continue;
+				int wordDist = distance(wheels, words.get(i), words.get(j));
+				if (wordDist < closestDist) {
+					closestNextDist = closestDist;
+					closestDist = wordDist;
+					closestWord = j;
+				}
+				if (wordDist < closestNextDist && j != closestWord) {
+					closestNextDist = wordDist;
+				}
+				if (closestNextDist == 2) break; // Already found two words very close
+			}
+			double ave = (closestDist + closestNextDist) / 2.0;
+			double aveMinusClsDist = ave - closestDist;
+			if (aveMinusClsDist > adjustment) {
+				adjustment = aveMinusClsDist;
+			}
+			overallAve[i] = 1 + ave;
+		}
+		Arrays.sort(overallAve);
+		double score = 0.0;
+		if (words.size() > 0) {
+			for (int i = 0; i < overallAve.length; i++) {
+				aveSoFar = overallAve[i] + aveSoFar;
+				score += aveSoFar;
+			}
+			score -= adjustment;
+			score /= words.size();
+		}
+		return score;
+	}
+	
+	/**
+	 * @param wheels the letters on each wheel, in order
+	 * @param word1 the starting word
+	 * @param word2 the ending word
+	 * @return the number of turns needed to move from one word to the other
+	 */
+	private static int distance(String[] wheels, String word1, String word2) {
+		int retVal = 0;
+		for (int w = 0; w < word1.length(); w++) {
+			int pos1 = wheels[w].indexOf(word1.charAt(w));
+			int pos2 = wheels[w].indexOf(word2.charAt(w));
+			int steps = Math.abs(pos1 - pos2);
+			steps = Math.min(steps, Math.abs((wheels[w].length() + pos1) - pos2));
+			steps = Math.min(steps, Math.abs((wheels[w].length() + pos2) - pos1));
+			retVal += steps;
+		}
+		return retVal;
+	}
+}
@@ -0,0 +1,97 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A distance kernel that compares a word with 32 other words at a time using the Vector API.
+ * The letter indices of the words are stored column-wise, one column per wheel, and the row of the
+ * distance table for the word's letter on each wheel is held in a vector, so that the distances to a
+ * block of words are WHEEL_COUNT lane selections and additions.  Blocks that cannot improve on the
+ * neighbours found so far are skipped; the others are scanned in order, so the neighbours found are
+ * exactly those of the scalar kernel.
+ * 
+ * This class is kept out of the main source tree so that the GA builds without the incubator module.
+ * Compile it against the main classes with --add-modules jdk.incubator.vector and put it on the class path;
+ * DistanceKernel loads it by name when Optimizer.USE_VECTOR_KERNEL is set.  VectorDistanceKernelTest
+ * compares it with the scalar kernel.
+ */
+public class VectorDistanceKernel extends DistanceKernel {
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_256; // Enough lanes to hold a row of the table
+	private static final int LANES = SPECIES.length();
+	
+	private byte[] columns = new byte[0]; // columns[w * stride + j] is the letter index at position w of word j
+	private int stride; // The length of a column, rounded up to a multiple of LANES
+	private final byte[] rows = new byte[Solution.WHEEL_COUNT * Solution.ALPHABET_SIZE * LANES]; // The rows of the
+																								 // distance table, padded to LANES
+	private final ByteVector[] rowVectors = new ByteVector[Solution.WHEEL_COUNT]; // Scratch space for findNeighbours
+	private final byte[] dists = new byte[LANES]; // Scratch space for findNeighbours
+	
+	@Override
+	void encode(Solution solution, int[] wordIds) {
+		super.encode(solution, wordIds);
+		int wheelCount = Solution.WHEEL_COUNT;
+		stride = (size + LANES - 1) / LANES * LANES;
+		if (columns.length < stride * wheelCount) {
+			columns = new byte[Math.max(stride * wheelCount, columns.length * 2)];
+		}
+		for (int w = 0; w < wheelCount; w++) {
+			for (int j = 0; j < size; j++) {
+				columns[w * stride + j] = codes[j * wheelCount + w];
+			}
+			for (int j = size; j < stride; j++) {
+				columns[w * stride + j] = 0;
+			}
+			for (int a = 0; a < Solution.ALPHABET_SIZE; a++) {
+				System.arraycopy(table, (w * Solution.ALPHABET_SIZE + a) * Solution.ALPHABET_SIZE,
+						rows, (w * Solution.ALPHABET_SIZE + a) * LANES, Solution.ALPHABET_SIZE);
+			}
+		}
+	}
+	
+	@Override
+	void findNeighbours(int i, int[] wordIds, NeighbourGraph graph) {
+		int wheelCount = Solution.WHEEL_COUNT;
+		for (int w = 0; w < wheelCount; w++) {
+			rowVectors[w] = ByteVector.fromArray(SPECIES, rows, (w * Solution.ALPHABET_SIZE + codes[i * wheelCount + w]) * LANES);
+		}
+		int closest = Integer.MAX_VALUE;
+		int closestNext = Integer.MAX_VALUE;
+		int closestNdx = -1;
+		int closestNextNdx = -1;
+		int scanned = size;
+		scan:
+		for (int base = 0; base < size; base += LANES) {
+			ByteVector blockDists = ByteVector.zero(SPECIES);
+			for (int w = 0; w < wheelCount; w++) {
+				ByteVector letters = ByteVector.fromArray(SPECIES, columns, w * stride + base);
+				blockDists = blockDists.add(letters.selectFrom(rowVectors[w]));
+			}
+			int end = Math.min(LANES, size - base);
+			boolean hasSelf = i >= base && i < base + end;
+			if (!hasSelf && blockDists.reduceLanes(VectorOperators.MIN) >= closestNext) continue; // Nothing to update
+			blockDists.intoArray(dists, 0);
+			for (int k = 0; k < end; k++) {
+				int j = base + k;
+				if (j == i) continue;
+				int wordDist = dists[k];
+				if (wordDist < closest) {
+					closestNext = closest;
+					closestNextNdx = closestNdx;
+					closest = wordDist;
+					closestNdx = j;
+				}
+				if (wordDist < closestNext && j != closestNdx) {
+					closestNext = wordDist;
+					closestNextNdx = j;
+				}
+				if (closestNext == 2) { // Already found two words very close
+					scanned = j + 1;
+					break scan;
+				}
+			}
+		}
+		graph.set(i, closestNdx < 0 ? -1 : wordIds[closestNdx], closest,
+				closestNextNdx < 0 ? -1 : wordIds[closestNextNdx], closestNext);
+		if (Optimizer.COLLECT_METRICS) recordScan(scanned);
+	}
+}
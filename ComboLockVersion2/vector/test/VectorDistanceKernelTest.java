@@ -0,0 +1,82 @@
+import java.util.SplittableRandom;
+
+/**
+ * Checks that the vector kernel finds the same neighbours and scores as the scalar kernel.  Locks from the
+ * initialization operators are mutated in chains, each lock being derived from the one before, so most of
+ * the locks are scored by carrying neighbours over from their basis and scanning only some words again.
+ * Every lock is compared with a full scan by the scalar kernel.
+ * 
+ * Run with --add-modules jdk.incubator.vector and the main classes on the class path; the exit status is 1
+ * if any lock differs.
+ */
+public class VectorDistanceKernelTest {
+	/**
+	 * @param args the number of chains, 100 by default, and the number of mutations in each, 50 by default
+	 */
+	public static void main(String[] args) {
+		int chains = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int chainLength = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		Optimizer.USE_VECTOR_KERNEL = true;
+		Optimizer.COLLECT_METRICS = true; // To count the locks that were scored by derivation
+		RandomStreams streams = new RandomStreams(Optimizer.SEED);
+		DistanceKernel scalar = new DistanceKernel();
+		int compared = 0;
+		int mismatches = 0;
+		for (int k = 0; k < chains; k++) {
+			SplittableRandom rng = streams.forInitialization(k);
+			Solution solution = Optimizer.initOps[k % Optimizer.initOps.length].run(rng);
+			if (k == 0 && !(DistanceKernel.prepare(solution, new int[0]) instanceof VectorDistanceKernel)) {
+				System.out.println("The vector kernel is not in use; is jdk.incubator.vector available?");
+				System.exit(1);
+			}
+			compared++;
+			if (!matches(scalar, solution)) mismatches++;
+			for (int m = 0; m < chainLength; m++) {
+				MutationOperator mutation = Optimizer.mutationOperators[rng.nextInt(Optimizer.mutationOperators.length)];
+				Solution child = mutation.run(solution, rng);
+				if (child.basis == null) continue; // The operator had nothing to propose
+				compared++;
+				if (!matches(scalar, child)) mismatches++;
+				solution = child;
+			}
+		}
+		long derived = Metrics.counter("solution.evaluations.derived").get();
+		System.out.println(compared + " locks compared, " + derived + " derived, " + mismatches + " mismatches");
+		if (mismatches > 0 || derived == 0) System.exit(1);
+	}
+	
+	/**
+	 * Score a lock with the kernel of this thread and compare its neighbours and score with a full scan
+	 * by the scalar kernel
+	 * @param scalar the scalar kernel
+	 * @param solution the lock configuration, which may have a basis to derive its neighbours from
+	 * @return true iff the neighbours and the score are the same
+	 */
+	private static boolean matches(DistanceKernel scalar, Solution solution) {
+		double score = solution.getScore();
+		NeighbourGraph graph = solution.getNeighbours();
+		int[] wordIds = Dictionary.ids(Dictionary.makeable(solution));
+		NeighbourGraph expected = new NeighbourGraph(wordIds.length);
+		scalar.encode(solution, wordIds);
+		for (int i = 0; i < wordIds.length; i++) {
+			scalar.findNeighbours(i, wordIds, expected);
+		}
+		boolean same = graph.size() == expected.size();
+		for (int i = 0; same && i < wordIds.length; i++) {
+			same = graph.getClosestWord(i) == expected.getClosestWord(i)
+					&& graph.getNextWord(i) == expected.getNextWord(i)
+					&& graph.getClosestDist(i) == expected.getClosestDist(i)
+					&& graph.getNextDist(i) == expected.getNextDist(i);
+		}
+		double expectedScore = scalar.score(expected);
+		if (!same || Double.doubleToLongBits(score) != Double.doubleToLongBits(expectedScore)) {
+			StringBuilder sb = new StringBuilder("Mismatch: " + expectedScore + " " + score + " ");
+			for (int w = 0; w < Solution.WHEEL_COUNT; w++) {
+				sb.append("/").append(solution.getWheel(w)).append("/");
+			}
+			System.out.println(sb);
+			return false;
+		}
+		return true;
+	}
+}